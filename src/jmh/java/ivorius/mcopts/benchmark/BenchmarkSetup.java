@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.benchmark;
+
+import ivorius.mcopts.commands.CommandSplit;
+import ivorius.mcopts.commands.SimpleCommand;
+import ivorius.mcopts.commands.parameters.Parameters;
+import ivorius.mcopts.commands.parameters.expect.CompletionCache;
+import ivorius.mcopts.commands.parameters.expect.Expect;
+import ivorius.mcopts.commands.parameters.expect.RegistryCompletionIndex;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.registry.RegistryNamespaced;
+import net.minecraft.world.World;
+
+import javax.annotation.Nullable;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Synthetic stand-ins for what the benchmarks would otherwise need a running game for.
+ */
+public class BenchmarkSetup
+{
+    public static final int REGISTRY_SIZE = 20000;
+    public static final int TREE_DEPTH = 4;
+    public static final int TREE_WIDTH = 8;
+
+    /**
+     * Like a modded block registry, with many namespaces.
+     */
+    public static RegistryNamespaced<ResourceLocation, Object> registry()
+    {
+        RegistryNamespaced<ResourceLocation, Object> registry = new RegistryNamespaced<>();
+        for (int i = 0; i < REGISTRY_SIZE; i++)
+        {
+            ResourceLocation key = new ResourceLocation(i % 10 == 0 ? "minecraft" : "mod" + (i % 50), "block_" + i);
+            registry.register(i, key, key);
+        }
+        return registry;
+    }
+
+    public static Expect expect(RegistryNamespaced<ResourceLocation, Object> registry)
+    {
+        return Parameters.expect().then(e -> expect(e, registry)).freeze();
+    }
+
+    public static void expect(Expect expect, RegistryNamespaced<ResourceLocation, Object> registry)
+    {
+        expect.any("Server", "World").descriptionU("target")
+                .next(IntStream.range(-1, 20)).descriptionU("dimension")
+                .named("block", "b").next(RegistryCompletionIndex.of(registry)).descriptionU("block")
+                .named("name", "n").any("name1", "name2", "other")
+                .named("rep").any("param1").any("param2").repeat()
+                .flag("force", "f")
+                .flag("verbose", "v")
+                .named("words").words(e -> e.any("alpha", "beta", "gamma", "delta"))
+                .named("or").any("foo", "boo").or().any("fee", "bee");
+    }
+
+    /**
+     * Commands nested {@link #TREE_DEPTH} levels deep with {@link #TREE_WIDTH} children each, named n0, n1, ...
+     * The leaves need permission level 2.
+     */
+    public static CommandSplit tree(String name, int depth, Consumer<Expect> expect)
+    {
+        return tree(name, depth, expect, null);
+    }
+
+    /**
+     * @param cache The leaves' completion cache, or null.
+     */
+    public static CommandSplit tree(String name, int depth, Consumer<Expect> expect, @Nullable CompletionCache cache)
+    {
+        CommandSplit split = new CommandSplit(name);
+        for (int i = 0; i < TREE_WIDTH; i++)
+        {
+            if (depth > 1)
+                split.add(tree("n" + i, depth - 1, expect, cache));
+            else
+                split.add(new SimpleCommand("n" + i, expect)
+                {
+                    @Override
+                    public void execute(MinecraftServer server, ICommandSender sender, String[] args)
+                    {
+
+                    }
+                }.permitFor(2).cacheCompletions(cache));
+        }
+        return split;
+    }
+
+    public static ICommandSender sender(int permissionLevel)
+    {
+        return new ICommandSender()
+        {
+            @Override
+            public String getName()
+            {
+                return "Benchmark";
+            }
+
+            @Override
+            public boolean canUseCommand(int permLevel, String commandName)
+            {
+                return permLevel <= permissionLevel;
+            }
+
+            @Override
+            public World getEntityWorld()
+            {
+                return null;
+            }
+
+            @Override
+            public MinecraftServer getServer()
+            {
+                return null;
+            }
+        };
+    }
+}
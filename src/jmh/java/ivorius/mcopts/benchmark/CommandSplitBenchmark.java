@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.benchmark;
+
+import ivorius.mcopts.commands.CommandSplit;
+import ivorius.mcopts.commands.parameters.expect.CompletionCache;
+import net.minecraft.command.ICommand;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.registry.RegistryNamespaced;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by lukas on 18.10.26.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandSplitBenchmark
+{
+    @Param({"0", "2"})
+    public int permission;
+
+    public CommandSplit tree;
+    public CommandSplit cachedTree;
+    public ICommandSender sender;
+
+    @Setup
+    public void setup()
+    {
+        RegistryNamespaced<ResourceLocation, Object> registry = BenchmarkSetup.registry();
+        tree = BenchmarkSetup.tree("root", BenchmarkSetup.TREE_DEPTH, e -> BenchmarkSetup.expect(e, registry));
+        cachedTree = BenchmarkSetup.tree("root", BenchmarkSetup.TREE_DEPTH, e -> BenchmarkSetup.expect(e, registry), new CompletionCache(256));
+        sender = BenchmarkSetup.sender(permission);
+    }
+
+    @Benchmark
+    public Pair<ICommand, String[]> leaf()
+    {
+        return tree.leaf(null, sender, new String[]{"n3", "n5", "n1", "n7", "Server", "--force"});
+    }
+
+    @Benchmark
+    public List<String> completeRoot()
+    {
+        return tree.getTabCompletions(null, sender, new String[]{"n"}, null);
+    }
+
+    @Benchmark
+    public List<String> completeLeaf()
+    {
+        return tree.getTabCompletions(null, sender, new String[]{"n3", "n5", "n1", "n7", "Server", "--"}, null);
+    }
+
+    @Benchmark
+    public List<String> completeLeafCached()
+    {
+        return cachedTree.getTabCompletions(null, sender, new String[]{"n3", "n5", "n1", "n7", "Server", "--"}, null);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.benchmark;
+
+import ivorius.mcopts.commands.parameters.expect.Expect;
+import net.minecraft.command.ICommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by lukas on 18.10.26.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpectBenchmark
+{
+    public Expect expect;
+    public ICommandSender sender;
+
+    @Setup
+    public void setup()
+    {
+        expect = BenchmarkSetup.expect(BenchmarkSetup.registry());
+        sender = BenchmarkSetup.sender(4);
+    }
+
+    protected List<String> get(String... args)
+    {
+        return expect.get(null, sender, args, null);
+    }
+
+    @Benchmark
+    public List<String> flags()
+    {
+        return get("Server", "--");
+    }
+
+    @Benchmark
+    public List<String> named()
+    {
+        return get("Server", "--name", "na");
+    }
+
+    @Benchmark
+    public List<String> splitInner()
+    {
+        return get("--words", "\"alpha", "be");
+    }
+
+    @Benchmark
+    public List<String> registry()
+    {
+        return get("--block", "block_1");
+    }
+
+    @Benchmark
+    public List<String> or()
+    {
+        return get("--or", "f");
+    }
+
+    @Benchmark
+    public String usage()
+    {
+        return expect.usage();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.benchmark;
+
+import ivorius.mcopts.commands.parameters.MCP;
+import ivorius.mcopts.commands.parameters.NaP;
+import ivorius.mcopts.commands.parameters.ParameterSchema;
+import ivorius.mcopts.commands.parameters.Parameters;
+import ivorius.mcopts.commands.parameters.expect.Expect;
+import net.minecraft.command.CommandException;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Created by lukas on 18.10.26.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParametersBenchmark
+{
+    @Param({"Server 3 --block mod7:block_107 -fv --words \"alpha beta\"", "World --rep a --rep b --rep c --name \"some \\\"quoted\\\" name\" -v"})
+    public String line;
+
+    public String[] args;
+    public Expect expect;
+    public ParameterSchema schema;
+    public Parameters built;
+
+    @Setup
+    public void setup()
+    {
+        args = line.split(" ", -1);
+        expect = BenchmarkSetup.expect(BenchmarkSetup.registry());
+        schema = expect.schema();
+        built = expect.declareLenient(new Parameters()).buildLenient(args);
+    }
+
+    @Benchmark
+    public Object parse()
+    {
+        return Parameters.parse(args).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Parameters build() throws CommandException
+    {
+        return expect.declare(new Parameters()).build(args);
+    }
+
+    @Benchmark
+    public Parameters buildLenient()
+    {
+        return expect.declareLenient(new Parameters()).buildLenient(args);
+    }
+
+    @Benchmark
+    public Parameters buildSchema() throws CommandException
+    {
+        return schema.build(args);
+    }
+
+    @Benchmark
+    public Object evaluate() throws CommandException
+    {
+        // Like MCP.pos, missing values fall back to defaults
+        return built.get(1).orElse("~").flatMap(x -> built.get("name").orElse("none").map(y -> x + y))
+                .map(String::length).filter(l -> l > 0).require();
+    }
+
+    @Benchmark
+    public int requireInt() throws CommandException
+    {
+        return NaP.asIntParameter(built.get(1).orElse("0"), 0, 100).mapInt(i -> i * 2).requireInt();
+    }
+
+    @Benchmark
+    public BlockPos pos() throws CommandException
+    {
+        return built.get(1).to(MCP.pos(BlockPos.ORIGIN, false)).require();
+    }
+}
@@ -5,29 +5,48 @@
 
 package ivorius.mcopts.accessor;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
+import gnu.trove.impl.Constants;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import ivorius.mcopts.reflection.FieldAccessor;
 import ivorius.mcopts.reflection.SafeReflector;
+import net.minecraft.world.biome.Biome;
 import net.minecraftforge.common.BiomeDictionary;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
 
 /**
  * Created by lukas on 08.06.17.
  */
 public class AccessorBiomeDictionary
 {
+    protected static final FieldAccessor BY_NAME = SafeReflector.field(BiomeDictionary.Type.class, "byName");
+    protected static final FieldAccessor SUB_TYPES = SafeReflector.field(BiomeDictionary.Type.class, "subTypes");
+
+    protected static volatile Snapshot snapshot;
+
+    @Nullable
     public static BiomeDictionary.Type getTypeWeak(String var)
     {
-        return getMap().get(var.toUpperCase());
+        return snapshot().type(var);
     }
 
     public static Map<String, BiomeDictionary.Type> getMap()
     {
-        return SafeReflector.get(BiomeDictionary.Type.class, "byName", null);
+        return BY_NAME.get(null);
+    }
+
+    /**
+     * Registers the type like {@link BiomeDictionary.Type#getType(String, BiomeDictionary.Type...)}.
+     */
+    public static BiomeDictionary.Type registerType(String name, BiomeDictionary.Type... subtypes)
+    {
+        BiomeDictionary.Type type = BiomeDictionary.Type.getType(name, subtypes);
+        invalidate();
+        return type;
     }
 
     public static void addSubtypes(BiomeDictionary.Type type, BiomeDictionary.Type... subtypes)
@@ -37,16 +56,189 @@ public class AccessorBiomeDictionary
 
     public static void addSubtypes(BiomeDictionary.Type type, List<BiomeDictionary.Type> subtypes)
     {
-        setSubtypes(type, Lists.newArrayList(Iterables.concat(getSubtypes(type), subtypes)));
+        List<BiomeDictionary.Type> present = getSubtypes(type);
+        List<BiomeDictionary.Type> types = new ArrayList<>(present.size() + subtypes.size());
+        types.addAll(present);
+        types.addAll(subtypes);
+        setSubtypes(type, types);
     }
 
     public static List<BiomeDictionary.Type> getSubtypes(BiomeDictionary.Type type)
     {
-        return SafeReflector.get(BiomeDictionary.Type.class, "subTypes", type, new ArrayList<>());
+        return SUB_TYPES.get(type, new ArrayList<>());
     }
 
     public static void setSubtypes(BiomeDictionary.Type type, List<BiomeDictionary.Type> types)
     {
-        SafeReflector.of(BiomeDictionary.Type.class, "subTypes", field -> field.set(type, types));
+        SUB_TYPES.set(type, types);
+        invalidate();
+    }
+
+    /**
+     * Collects subtype changes for many types, to write each type's subtypes only once.
+     */
+    @Nonnull
+    public static Edit edit()
+    {
+        return new Edit();
+    }
+
+    /**
+     * The type and all its subtypes, their subtypes and so on.
+     */
+    @Nonnull
+    public static Set<BiomeDictionary.Type> getSubtypeClosure(BiomeDictionary.Type type)
+    {
+        return snapshot().closure(type);
+    }
+
+    /**
+     * Whether the type is the other type or one of its (transitive) subtypes.
+     */
+    public static boolean isOfType(BiomeDictionary.Type type, BiomeDictionary.Type of)
+    {
+        return type == of || snapshot().isSubtype(type, of);
+    }
+
+    /**
+     * Whether the biome has the type or one of its (transitive) subtypes.
+     */
+    public static boolean hasType(Biome biome, BiomeDictionary.Type type)
+    {
+        Snapshot snapshot = snapshot();
+        for (BiomeDictionary.Type biomeType : BiomeDictionary.getTypes(biome))
+            if (biomeType == type || snapshot.isSubtype(biomeType, type))
+                return true;
+        return false;
+    }
+
+    /**
+     * Forgets the lookup snapshot. Types changed through this class do this already, but types changed
+     * elsewhere need it.
+     */
+    public static void invalidate()
+    {
+        snapshot = null;
+    }
+
+    protected static Snapshot snapshot()
+    {
+        Snapshot snapshot = AccessorBiomeDictionary.snapshot;
+        // Types registered elsewhere are at least seen
+        if (snapshot == null || snapshot.byName.size() != snapshot.source.size())
+            AccessorBiomeDictionary.snapshot = snapshot = new Snapshot(getMap());
+        return snapshot;
+    }
+
+    protected static class Snapshot
+    {
+        protected final Map<String, BiomeDictionary.Type> source;
+        protected final ImmutableMap<String, BiomeDictionary.Type> byName;
+
+        protected final TObjectIntMap<BiomeDictionary.Type> ids;
+        protected final BiomeDictionary.Type[] types;
+        // Each type's transitive subtypes by id
+        protected final BitSet[] closures;
+
+        public Snapshot(Map<String, BiomeDictionary.Type> source)
+        {
+            this.source = source;
+            byName = ImmutableMap.copyOf(source);
+
+            types = byName.values().toArray(new BiomeDictionary.Type[0]);
+            ids = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+            for (int i = 0; i < types.length; i++)
+                ids.put(types[i], i);
+
+            closures = new BitSet[types.length];
+            for (int i = 0; i < types.length; i++)
+            {
+                BitSet closure = closures[i] = new BitSet(types.length);
+                Deque<BiomeDictionary.Type> next = new ArrayDeque<>(getSubtypes(types[i]));
+                while (!next.isEmpty())
+                {
+                    int id = ids.get(next.remove());
+                    if (id >= 0 && !closure.get(id))
+                    {
+                        closure.set(id);
+                        next.addAll(getSubtypes(types[id]));
+                    }
+                }
+            }
+        }
+
+        @Nullable
+        public BiomeDictionary.Type type(String name)
+        {
+            BiomeDictionary.Type type = byName.get(name);
+            return type != null ? type : byName.get(name.toUpperCase());
+        }
+
+        public boolean isSubtype(BiomeDictionary.Type type, BiomeDictionary.Type of)
+        {
+            int id = ids.get(type), ofID = ids.get(of);
+            return id >= 0 && ofID >= 0 && closures[ofID].get(id);
+        }
+
+        @Nonnull
+        public Set<BiomeDictionary.Type> closure(BiomeDictionary.Type type)
+        {
+            Set<BiomeDictionary.Type> closure = new HashSet<>();
+            closure.add(type);
+
+            int id = ids.get(type);
+            if (id >= 0)
+                closures[id].stream().forEach(i -> closure.add(types[i]));
+            return closure;
+        }
+    }
+
+    public static class Edit
+    {
+        protected final Map<BiomeDictionary.Type, List<BiomeDictionary.Type>> subtypes = new LinkedHashMap<>();
+        protected boolean committed;
+
+        protected Edit()
+        {
+        }
+
+        protected List<BiomeDictionary.Type> subtypes(BiomeDictionary.Type type)
+        {
+            if (committed)
+                throw new IllegalStateException("Already committed");
+            return subtypes.computeIfAbsent(type, t -> new ArrayList<>(getSubtypes(t)));
+        }
+
+        public Edit add(BiomeDictionary.Type type, BiomeDictionary.Type... subtypes)
+        {
+            return add(type, Arrays.asList(subtypes));
+        }
+
+        public Edit add(BiomeDictionary.Type type, List<BiomeDictionary.Type> subtypes)
+        {
+            subtypes(type).addAll(subtypes);
+            return this;
+        }
+
+        public Edit set(BiomeDictionary.Type type, List<BiomeDictionary.Type> subtypes)
+        {
+            List<BiomeDictionary.Type> list = subtypes(type);
+            list.clear();
+            list.addAll(subtypes);
+            return this;
+        }
+
+        /**
+         * Writes each changed type's subtypes once, and then drops the lookup snapshot.
+         */
+        public void commit()
+        {
+            if (committed)
+                throw new IllegalStateException("Already committed");
+            committed = true;
+
+            subtypes.forEach(SUB_TYPES::set);
+            invalidate();
+        }
     }
 }
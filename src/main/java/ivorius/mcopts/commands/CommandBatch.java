@@ -0,0 +1,293 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands;
+
+import ivorius.mcopts.MCOpts;
+import ivorius.mcopts.commands.parameters.ArgumentView;
+import net.minecraft.command.*;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.CommandEvent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Executes many command lines for one sender. Within one call to {@link #execute(Stream)}, each distinct command
+ * path (e.g. "structure gen") is resolved through its {@link CommandSplit}s once, with permission checked once per
+ * command, and its leaf's expect compiled once. Lines that fail don't stop the batch; their errors are reported
+ * with the results instead of being sent to the sender.
+ * <p>
+ * Otherwise each line runs like it does through the command manager: it posts a {@link CommandEvent}, which may
+ * cancel it or change its args, expands an entity selector at the command's username index, and sets the sender's
+ * command stats.
+ * <p>
+ * Each call resolves anew, so changed permissions or commands apply from the next call on.
+ */
+public class CommandBatch
+{
+    protected final MinecraftServer server;
+    protected final ICommandSender sender;
+    protected final Map<String, ICommand> commands;
+
+    public CommandBatch(MinecraftServer server, ICommandSender sender, Map<String, ICommand> commands)
+    {
+        this.server = server;
+        this.sender = sender;
+        this.commands = commands;
+    }
+
+    public CommandBatch(MinecraftServer server, ICommandSender sender)
+    {
+        this(server, sender, server.getCommandManager().getCommands());
+    }
+
+    /**
+     * The line's args like the vanilla command manager sees them, with the command's name first.
+     */
+    @Nonnull
+    public static String[] split(String line)
+    {
+        line = line.trim();
+        return (line.startsWith("/") ? line.substring(1) : line).split(" ");
+    }
+
+    @Nonnull
+    public List<Result> execute(String... lines)
+    {
+        return execute(Arrays.stream(lines));
+    }
+
+    /**
+     * Executes the lines in order. Returns one result for each line.
+     */
+    @Nonnull
+    public List<Result> execute(Stream<String> lines)
+    {
+        Map<String, Node> roots = new HashMap<>();
+        List<Result> results = new ArrayList<>();
+        lines.forEachOrdered(line -> results.add(execute(roots, results.size(), line)));
+        return results;
+    }
+
+    @Nonnull
+    public Result execute(int index, String line)
+    {
+        return execute(new HashMap<>(), index, line);
+    }
+
+    /**
+     * @param roots The commands resolved so far in this call.
+     */
+    @Nonnull
+    protected Result execute(Map<String, Node> roots, int index, String line)
+    {
+        String[] split = split(line);
+        ICommand command = null;
+        int successes = 0;
+        CommandException error = null;
+
+        try
+        {
+            Node root = root(roots, split[0]);
+            String[] args = Arrays.copyOfRange(split, 1, split.length);
+            int usernameIndex = usernameIndex(root.command, args);
+
+            CommandEvent event = new CommandEvent(root.command, sender, args);
+            if (MinecraftForge.EVENT_BUS.post(event))
+            {
+                // Cancelled lines count as done, without stats, unless they failed unchecked
+                Throwable exception = event.getException();
+                if (exception instanceof RuntimeException || exception instanceof Error)
+                    return new Result(index, line, root.command, 0, exception(exception));
+                return new Result(index, line, root.command, 1, null);
+            }
+            if (event.getParameters() != null)
+                args = event.getParameters();
+
+            if (usernameIndex >= 0 && usernameIndex < args.length)
+            {
+                String selector = args[usernameIndex];
+                List<Entity> entities = EntitySelector.matchEntities(sender, selector, Entity.class);
+                sender.setCommandStat(CommandResultStats.Type.AFFECTED_ENTITIES, entities.size());
+                if (entities.isEmpty())
+                    throw new PlayerNotFoundException("commands.generic.selector.notFound", selector);
+
+                for (Entity entity : entities)
+                {
+                    args[usernameIndex] = entity.getCachedUniqueIdString();
+                    try
+                    {
+                        command = execute(root, args);
+                        successes++;
+                    }
+                    catch (CommandException | RuntimeException e)
+                    {
+                        if (error == null) error = exception(e);
+                    }
+                }
+                args[usernameIndex] = selector;
+            }
+            else
+            {
+                sender.setCommandStat(CommandResultStats.Type.AFFECTED_ENTITIES, 1);
+                command = execute(root, args);
+                successes++;
+            }
+        }
+        catch (CommandException | RuntimeException e)
+        {
+            error = exception(e);
+        }
+
+        sender.setCommandStat(CommandResultStats.Type.SUCCESS_COUNT, successes);
+        return new Result(index, line, command, successes, error);
+    }
+
+    /**
+     * Walks the args through the splits from the root, and executes the command they lead to.
+     *
+     * @return The executed command.
+     */
+    @Nonnull
+    protected ICommand execute(Node root, String[] args) throws CommandException
+    {
+        ArgumentView view = ArgumentView.of(args);
+        Node node = root;
+
+        // Splits that execute differently are left to do so
+        int depth = 0;
+        while (node.command instanceof CommandSplit && !CommandSplit.OVERRIDES_EXECUTE.get(node.command.getClass()))
+            node = node.child(view, depth++);
+
+        CommandSplit.execute(node.command, server, sender, view.skip(depth));
+        return node.command;
+    }
+
+    /**
+     * The arg to expand as entity selector, like the command manager does, or -1.
+     */
+    protected static int usernameIndex(ICommand command, String[] args) throws CommandException
+    {
+        for (int i = 0; i < args.length; i++)
+            if (command.isUsernameIndex(args, i) && EntitySelector.matchesMultiplePlayers(args[i]))
+                return i;
+        return -1;
+    }
+
+    @Nonnull
+    protected static CommandException exception(Throwable throwable)
+    {
+        if (throwable instanceof CommandException)
+            return (CommandException) throwable;
+
+        MCOpts.logger.error("Couldn't process batched command", throwable);
+        CommandException exception = new CommandException("commands.generic.exception");
+        exception.initCause(throwable);
+        return exception;
+    }
+
+    @Nonnull
+    protected Node root(Map<String, Node> roots, String name) throws CommandException
+    {
+        Node node = roots.get(name);
+        if (node == null)
+        {
+            ICommand command = commands.get(name);
+            if (command == null)
+                throw new CommandNotFoundException();
+            if (!command.checkPermission(server, sender))
+                throw new CommandException("commands.generic.permission");
+            roots.put(name, node = new Node(command));
+        }
+        return node;
+    }
+
+    /**
+     * The failed lines' results.
+     */
+    @Nonnull
+    public static List<Result> errors(List<Result> results)
+    {
+        return results.stream().filter(r -> r.error != null).collect(Collectors.toList());
+    }
+
+    /**
+     * A command whose permission has been checked.
+     */
+    protected class Node
+    {
+        protected final ICommand command;
+        protected Map<String, Node> children;
+
+        public Node(ICommand command)
+        {
+            this.command = command;
+            if (command instanceof CommandExpecting)
+                ((CommandExpecting) command).expect();
+        }
+
+        /**
+         * The split's command for the arg at the index, through
+         * {@link CommandSplit#validatedCommand(MinecraftServer, ICommandSender, ArgumentView)}.
+         */
+        @Nonnull
+        protected Node child(ArgumentView args, int index) throws CommandException
+        {
+            if (children == null)
+                children = new HashMap<>();
+
+            String name = args.size() > index ? args.get(index) : null;
+            Node node = name != null ? children.get(name) : null;
+            if (node == null)
+            {
+                ICommand child = ((CommandSplit) command).validatedCommand(server, sender, args.skip(index));
+                children.put(name, node = new Node(child));
+            }
+            return node;
+        }
+    }
+
+    public static class Result
+    {
+        public final int index;
+        public final String line;
+        /**
+         * The command that was executed, or the root command if the line was cancelled. Null if neither.
+         */
+        @Nullable
+        public final ICommand command;
+        /**
+         * How often the command succeeded, e.g. once per entity a selector matched.
+         */
+        public final int successes;
+        /**
+         * The first error, if any.
+         */
+        @Nullable
+        public final CommandException error;
+
+        public Result(int index, String line, @Nullable ICommand command, int successes, @Nullable CommandException error)
+        {
+            this.index = index;
+            this.line = line;
+            this.command = command;
+            this.successes = successes;
+            this.error = error;
+        }
+
+        public boolean succeeded()
+        {
+            return error == null;
+        }
+    }
+}
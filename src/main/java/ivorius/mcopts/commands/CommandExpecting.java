@@ -5,24 +5,126 @@
 
 package ivorius.mcopts.commands;
 
+import ivorius.mcopts.commands.parameters.ArgumentView;
+import ivorius.mcopts.commands.parameters.Parameters;
+import ivorius.mcopts.commands.parameters.expect.CompletionCache;
+import ivorius.mcopts.commands.parameters.expect.CompletionSession;
+import ivorius.mcopts.commands.parameters.expect.Expect;
 import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Created by lukas on 05.06.17.
  */
 public abstract class CommandExpecting extends CommandBase implements Expecting
 {
+    private volatile Expect expect;
+    private final Map<ICommandSender, CompletionSession> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile CompletionCache completionCache;
+
+    /**
+     * The expect is built once and then frozen and reused. Call {@link #invalidateExpect()} if its structure changes.
+     */
+    @Override
+    public Expect expect()
+    {
+        Expect expect = this.expect;
+        if (expect == null)
+            this.expect = expect = Expecting.super.expect().freeze();
+        return expect;
+    }
+
+    /**
+     * For commands whose expect(Expect) declares something different over time.
+     */
+    public void invalidateExpect()
+    {
+        expect = null;
+        sessions.clear();
+    }
+
+    /**
+     * Keeps completions that only depend on the args in the cache, which may be shared between commands.
+     *
+     * @param cache The cache, or null to stop caching.
+     * @see Expect#cacheable()
+     */
+    public CommandExpecting cacheCompletions(@Nullable CompletionCache cache)
+    {
+        completionCache = cache;
+        return this;
+    }
+
+    /**
+     * Builds the args from the expect's compiled schema, so its declarations aren't made again for every line.
+     */
+    public Parameters parameters(ArgumentView args) throws CommandException
+    {
+        return expect().schema().build(args);
+    }
+
+    public Parameters parameters(String[] args) throws CommandException
+    {
+        return expect().schema().build(args);
+    }
+
+    /**
+     * Executes the args as seen by a parent {@link CommandSplit}. Override this to use them without copying,
+     * e.g. with {@link #parameters(ArgumentView)}.
+     */
+    public void execute(MinecraftServer server, ICommandSender sender, ArgumentView args) throws CommandException
+    {
+        execute(server, sender, args.toArgs());
+    }
+
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, ArgumentView args, @Nullable BlockPos targetPos)
+    {
+        return getTabCompletions(server, sender, args.skipped(), args.toArgs(), targetPos);
+    }
+
     @Nonnull
     @Override
     public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos)
     {
-        return Expecting.super.getTabCompletions(server, sender, args, targetPos);
+        return getTabCompletions(server, sender, "", args, targetPos);
+    }
+
+    /**
+     * @param path The args a {@link CommandSplit} consumed to get here.
+     */
+    protected List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String path, String[] args, @Nullable BlockPos targetPos)
+    {
+        Expect expect = expect();
+
+        CompletionCache cache = completionCache;
+        CompletionCache.Key key = null;
+        if (cache != null)
+        {
+            key = new CompletionCache.Key(expect, path, CompletionCache.permissionLevel(sender, getName()), args);
+            List<String> cached = cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+
+        // Senders complete the same line over and over while typing
+        CompletionSession session = sessions.get(sender);
+        if (session == null || session.expect() != expect)
+            sessions.put(sender, session = new CompletionSession(expect));
+
+        Parameters parameters = session.parameters(args);
+        List<String> completions = expect.get(server, sender, args, parameters, targetPos);
+        if (key != null && expect.isCacheable(parameters))
+            cache.put(key, completions);
+        return completions;
     }
 }
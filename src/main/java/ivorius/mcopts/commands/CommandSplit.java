@@ -6,7 +6,9 @@
 package ivorius.mcopts.commands;
 
 import com.google.common.collect.Lists;
+import ivorius.mcopts.commands.parameters.ArgumentView;
 import ivorius.mcopts.commands.parameters.Parameters;
+import ivorius.mcopts.commands.parameters.expect.PrefixIndex;
 import net.minecraft.command.*;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
@@ -23,10 +25,18 @@ import java.util.stream.Collectors;
  */
 public class CommandSplit extends CommandBase
 {
+    protected static final ClassValue<Boolean> OVERRIDES_EXECUTE = overrides("execute", MinecraftServer.class, ICommandSender.class, String[].class);
+    protected static final ClassValue<Boolean> OVERRIDES_COMPLETIONS = overrides("getTabCompletions", MinecraftServer.class, ICommandSender.class, String[].class, BlockPos.class);
+
     protected final Map<String, ICommand> commands = new HashMap<>();
     protected String name;
     protected int requiredPermission;
 
+    // Cached when commands are added
+    protected final List<CommandSplit> parents = new ArrayList<>();
+    protected PrefixIndex names;
+    protected String usage;
+
     public CommandSplit()
     {
         add(new SimpleCommand("help", expect -> expect.next(commands.keySet()).description("commands.parameters.command").required())
@@ -59,6 +69,24 @@ public class CommandSplit extends CommandBase
     public void add(ICommand command)
     {
         commands.put(command.getName(), command);
+        if (command instanceof CommandSplit)
+            ((CommandSplit) command).parents.add(this);
+        invalidate();
+    }
+
+    protected void invalidate()
+    {
+        names = null;
+        usage = null;
+        parents.forEach(CommandSplit::invalidate);
+    }
+
+    protected PrefixIndex names()
+    {
+        PrefixIndex names = this.names;
+        if (names == null)
+            this.names = names = new PrefixIndex(new ArrayList<>(commands.keySet()));
+        return names;
     }
 
     public Optional<ICommand> get(String name)
@@ -69,27 +97,43 @@ public class CommandSplit extends CommandBase
     public CommandSplit permitFor(int permission)
     {
         this.requiredPermission = permission;
+        invalidate();
         return this;
     }
 
     @Nullable
     public Pair<ICommand, String[]> leaf(MinecraftServer server, ICommandSender sender, String[] args)
     {
-        return Optional.ofNullable(args.length > 0 ? args[0] : null)
-                .flatMap(this::get)
-                .filter(c -> c.checkPermission(server, sender))
-                .map(c -> c instanceof CommandSplit
-                        ? ((CommandSplit) c).leaf(server, sender, splitParameters(args))
-                        : Pair.of(c, splitParameters(args)
-                ))
-                .orElse(null);
+        Pair<ICommand, ArgumentView> leaf = leaf(server, sender, ArgumentView.of(args));
+        return leaf != null ? Pair.of(leaf.getLeft(), leaf.getRight().toArgs()) : null;
+    }
+
+    @Nullable
+    public Pair<ICommand, ArgumentView> leaf(MinecraftServer server, ICommandSender sender, ArgumentView args)
+    {
+        ICommand command = args.size() > 0 ? commands.get(args.get(0)) : null;
+        if (command == null || !command.checkPermission(server, sender))
+            return null;
+
+        return command instanceof CommandSplit
+                ? ((CommandSplit) command).leaf(server, sender, args.skip(1))
+                : Pair.of(command, args.skip(1));
     }
 
     @Override
     public String getUsage(ICommandSender sender)
     {
-        return String.format("%s %s<%s%s%s>", getName(), TextFormatting.RESET, TextFormatting.YELLOW,
-                String.join(TextFormatting.RESET + "|" + TextFormatting.YELLOW, commands.keySet()), TextFormatting.RESET);
+        String usage = this.usage;
+        if (usage == null)
+        {
+            StringBuilder builder = new StringBuilder(getName()).append(' ').append(TextFormatting.RESET).append('<');
+            for (String name : commands.keySet())
+                builder.append(TextFormatting.YELLOW).append(name).append(TextFormatting.RESET).append('|');
+            if (!commands.isEmpty())
+                builder.setLength(builder.length() - 1);
+            this.usage = usage = builder.append('>').toString();
+        }
+        return usage;
     }
 
     @Override
@@ -101,9 +145,60 @@ public class CommandSplit extends CommandBase
     @Override
     public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
     {
-        validatedCommand(server, sender, args).execute(server, sender, splitParameters(args));
+        execute(server, sender, ArgumentView.of(args));
     }
 
+    /**
+     * Executes the args as seen by a parent split. Subclasses should override this rather than
+     * {@link #execute(MinecraftServer, ICommandSender, String[])}.
+     */
+    public void execute(MinecraftServer server, ICommandSender sender, ArgumentView args) throws CommandException
+    {
+        execute(validatedCommand(server, sender, args), server, sender, args.skip(1));
+    }
+
+    /**
+     * Passes the args on without copying them to commands that accept an {@link ArgumentView},
+     * unless they override the String[] method.
+     */
+    public static void execute(ICommand command, MinecraftServer server, ICommandSender sender, ArgumentView args) throws CommandException
+    {
+        if (command instanceof CommandSplit && !OVERRIDES_EXECUTE.get(command.getClass()))
+            ((CommandSplit) command).execute(server, sender, args);
+        else if (command instanceof CommandExpecting) // Calls the String[] method unless overridden
+            ((CommandExpecting) command).execute(server, sender, args);
+        else
+            command.execute(server, sender, args.toArgs());
+    }
+
+    /**
+     * Whether a command's class overrides the method from CommandSplit or CommandExpecting, so that its
+     * {@link ArgumentView} counterpart must not be called instead.
+     */
+    protected static ClassValue<Boolean> overrides(String name, Class<?>... parameterTypes)
+    {
+        return new ClassValue<Boolean>()
+        {
+            @Override
+            protected Boolean computeValue(Class<?> type)
+            {
+                try
+                {
+                    Class<?> declaring = type.getMethod(name, parameterTypes).getDeclaringClass();
+                    return declaring != CommandSplit.class && declaring != CommandExpecting.class;
+                }
+                catch (NoSuchMethodException e)
+                {
+                    return true;
+                }
+            }
+        };
+    }
+
+    /**
+     * @deprecated Use {@link ArgumentView#skip(int)} to pass the args on without copying them.
+     */
+    @Deprecated
     @Nonnull
     public String[] splitParameters(String[] args)
     {
@@ -113,10 +208,16 @@ public class CommandSplit extends CommandBase
     @Nonnull
     public ICommand validatedCommand(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
     {
-        if (args.length < 1)
+        return validatedCommand(server, sender, ArgumentView.of(args));
+    }
+
+    @Nonnull
+    public ICommand validatedCommand(MinecraftServer server, ICommandSender sender, ArgumentView args) throws CommandException
+    {
+        if (args.size() < 1)
             throw new WrongUsageException(getUsage(sender));
 
-        ICommand iCommand = get(args[0]).orElseThrow(CommandNotFoundException::new);
+        ICommand iCommand = get(args.get(0)).orElseThrow(CommandNotFoundException::new);
 
         if (!iCommand.checkPermission(server, sender))
             throw new CommandException("commands.generic.permission");
@@ -127,17 +228,31 @@ public class CommandSplit extends CommandBase
     @Override
     public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos)
     {
-        if (args.length == 1)
-            return getListOfStringsMatchingLastWord(args, commands.entrySet().stream()
-                    .filter(e -> e.getValue().checkPermission(server, sender))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList())
-            );
-        return get(args[0]).filter(e -> e.checkPermission(server, sender))
-                .map(c -> c.getTabCompletions(server, sender, splitParameters(args), targetPos))
+        return getTabCompletions(server, sender, ArgumentView.of(args), targetPos);
+    }
+
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, ArgumentView args, @Nullable BlockPos targetPos)
+    {
+        if (args.size() == 1)
+            return names().matching(args.get(0)).stream()
+                    .filter(name -> commands.get(name).checkPermission(server, sender))
+                    .collect(Collectors.toList());
+        return get(args.get(0)).filter(e -> e.checkPermission(server, sender))
+                .map(c -> getTabCompletions(c, server, sender, args.skip(1), targetPos))
                 .orElse(Collections.emptyList());
     }
 
+    public static List<String> getTabCompletions(ICommand command, MinecraftServer server, ICommandSender sender, ArgumentView args, @Nullable BlockPos targetPos)
+    {
+        if (OVERRIDES_COMPLETIONS.get(command.getClass()))
+            return command.getTabCompletions(server, sender, args.toArgs(), targetPos);
+        else if (command instanceof CommandSplit)
+            return ((CommandSplit) command).getTabCompletions(server, sender, args, targetPos);
+        else if (command instanceof CommandExpecting)
+            return ((CommandExpecting) command).getTabCompletions(server, sender, args, targetPos);
+        return command.getTabCompletions(server, sender, args.toArgs(), targetPos);
+    }
+
     @Override
     public int getRequiredPermissionLevel()
     {
@@ -5,14 +5,9 @@
 
 package ivorius.mcopts.commands;
 
-import ivorius.mcopts.commands.parameters.Parameters;
 import ivorius.mcopts.commands.parameters.expect.Expect;
 import net.minecraft.command.ICommandSender;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.math.BlockPos;
 
-import javax.annotation.Nullable;
-import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -23,6 +18,13 @@ public abstract class SimpleCommand extends CommandExpecting
 {
     public String name;
 
+    /**
+     * Fixed usage, or null to render it from the (cached) expect.
+     *
+     * @deprecated Reading it directly returns null unless a fixed usage was given, since the usage is rendered
+     * lazily in the current language. Read it through {@link #usage()}, which {@link #getUsage(ICommandSender)} does too.
+     */
+    @Deprecated
     public String usage;
     public Consumer<Expect> expector;
 
@@ -36,7 +38,6 @@ public abstract class SimpleCommand extends CommandExpecting
     public SimpleCommand(String name, Consumer<Expect> expector)
     {
         this.name = name;
-        this.usage = Parameters.expect().then(expector).usage();
         this.expector = expector;
     }
 
@@ -72,15 +73,18 @@ public abstract class SimpleCommand extends CommandExpecting
             expector.accept(expect);
     }
 
-    @Override
-    public String getUsage(ICommandSender sender)
+    /**
+     * The fixed usage, or the usage rendered from the expect.
+     */
+    public String usage()
     {
-        return String.format("%s %s", name, usage != null ? usage : expect().usage());
+        //noinspection deprecation
+        return usage != null ? usage : expect().usage();
     }
 
     @Override
-    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos)
+    public String getUsage(ICommandSender sender)
     {
-        return expect().get(server, sender, args, targetPos);
+        return String.format("%s %s", name, usage());
     }
 }
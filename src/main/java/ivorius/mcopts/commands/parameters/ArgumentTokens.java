@@ -0,0 +1,392 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Splits the space-joined arguments into whitespace separated tokens, respecting "quoted strings" with escapes.
+ * The rules match those of a {@link java.io.StreamTokenizer} with only whitespace (&lt;= ' ') and quote ('"') characters,
+ * but the input is scanned just once and every token remembers where it came from.
+ */
+public class ArgumentTokens
+{
+    protected static final int NEED_CHAR = -2;
+    protected static final int EOF = -1;
+
+    protected final String input;
+
+    protected int size;
+
+    protected int[] rawStart;
+    protected int[] rawEnd;
+    protected int[] valueStart;
+    protected int[] valueEnd;
+    protected boolean[] quoted;
+    /**
+     * Only set for quoted tokens that contain escapes, otherwise the value is a substring of the input.
+     */
+    protected String[] escaped;
+
+    // Scanner state after each token, to continue from
+    protected int reused;
+    protected int scanned;
+    protected int[] readEnd;
+    protected int[] peek;
+
+    protected ArgumentTokens(String input, int capacity)
+    {
+        this.input = input;
+        rawStart = new int[capacity];
+        rawEnd = new int[capacity];
+        valueStart = new int[capacity];
+        valueEnd = new int[capacity];
+        quoted = new boolean[capacity];
+        escaped = new String[capacity];
+        readEnd = new int[capacity];
+        peek = new int[capacity];
+    }
+
+    @Nonnull
+    public static ArgumentTokens tokenize(String[] args)
+    {
+        return tokenize(args, null);
+    }
+
+    /**
+     * Tokenizes the arguments, taking over all tokens of the previous tokens that were read from an unchanged prefix
+     * of the input.
+     */
+    @Nonnull
+    public static ArgumentTokens tokenize(String[] args, @Nullable ArgumentTokens previous)
+    {
+        return tokenize(ArgumentView.of(args), previous);
+    }
+
+    @Nonnull
+    public static ArgumentTokens tokenize(ArgumentView args, @Nullable ArgumentTokens previous)
+    {
+        String input = args.join();
+        int reused = previous != null ? previous.reusable(input) : 0;
+
+        ArgumentTokens tokens = new ArgumentTokens(input, Math.max(Math.max(args.size() + 1, reused + 1), 4));
+        if (reused > 0)
+        {
+            tokens.copy(previous, reused);
+            tokens.reused = tokens.scanned = reused;
+            tokens.scan(previous.readEnd[reused - 1], previous.peek[reused - 1]);
+        }
+        else
+            tokens.scan(0, NEED_CHAR);
+
+        if (args.size() > 0 && args.last().length() == 0)
+        {
+            // Are we in an open quote?
+            int last = tokens.size - 1;
+            if (!(last >= 0 && tokens.quoted[last] && tokens.input.charAt(tokens.rawEnd[last] - 1) != '"'))
+            {
+                // We are currently writing a new param
+                int end = tokens.input.length();
+                tokens.add(end, end, end, end, false, null);
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * The number of tokens that were read entirely from the first characters of the given input.
+     */
+    public int reusable(String input)
+    {
+        int length = Math.min(this.input.length(), input.length());
+        int common = 0;
+        while (common < length && this.input.charAt(common) == input.charAt(common))
+            common++;
+
+        // Tokens read up to the end might have continued
+        int reusable = scanned;
+        while (reusable > 0 && readEnd[reusable - 1] >= common)
+            reusable--;
+        return reusable;
+    }
+
+    protected void copy(ArgumentTokens tokens, int count)
+    {
+        System.arraycopy(tokens.rawStart, 0, rawStart, 0, count);
+        System.arraycopy(tokens.rawEnd, 0, rawEnd, 0, count);
+        System.arraycopy(tokens.valueStart, 0, valueStart, 0, count);
+        System.arraycopy(tokens.valueEnd, 0, valueEnd, 0, count);
+        System.arraycopy(tokens.quoted, 0, quoted, 0, count);
+        System.arraycopy(tokens.escaped, 0, escaped, 0, count);
+        System.arraycopy(tokens.readEnd, 0, readEnd, 0, count);
+        System.arraycopy(tokens.peek, 0, peek, 0, count);
+        size = count;
+    }
+
+    protected void scan(int pos, int peek)
+    {
+        int length = input.length();
+        int lastIndex = pos;
+
+        while (true)
+        {
+            int c = peek;
+            if (c < 0)
+            {
+                if (pos >= length) return;
+                c = input.charAt(pos++);
+            }
+
+            while (c <= ' ')
+            {
+                if (pos >= length) return;
+                c = input.charAt(pos++);
+            }
+
+            if (c == '"')
+            {
+                int start = pos;
+                StringBuilder builder = null;
+
+                int d = pos < length ? input.charAt(pos++) : EOF;
+                while (d >= 0 && d != '"' && d != '\n' && d != '\r')
+                {
+                    if (d == '\\')
+                    {
+                        if (builder == null)
+                            builder = new StringBuilder().append(input, start, pos - 1);
+
+                        c = pos < length ? input.charAt(pos++) : EOF;
+                        int first = c;
+                        if (c >= '0' && c <= '7')
+                        {
+                            c = c - '0';
+                            int c2 = pos < length ? input.charAt(pos++) : EOF;
+                            if ('0' <= c2 && c2 <= '7')
+                            {
+                                c = (c << 3) + (c2 - '0');
+                                c2 = pos < length ? input.charAt(pos++) : EOF;
+                                if ('0' <= c2 && c2 <= '7' && first <= '3')
+                                {
+                                    c = (c << 3) + (c2 - '0');
+                                    d = pos < length ? input.charAt(pos++) : EOF;
+                                }
+                                else
+                                    d = c2;
+                            }
+                            else
+                                d = c2;
+                        }
+                        else
+                        {
+                            c = unescape(c);
+                            d = pos < length ? input.charAt(pos++) : EOF;
+                        }
+
+                        builder.append((char) c);
+                    }
+                    else
+                    {
+                        if (builder != null)
+                            builder.append((char) d);
+                        d = pos < length ? input.charAt(pos++) : EOF;
+                    }
+                }
+
+                // The closing quote is consumed, anything else is kept for the next token
+                peek = d == '"' ? NEED_CHAR : d;
+                int end = d == EOF ? pos : pos - 1;
+
+                add(lastIndex, pos, start, end, true, builder != null ? builder.toString() : null);
+                scanned(pos, peek);
+            }
+            else
+            {
+                int start = pos - 1;
+                do
+                    c = pos < length ? input.charAt(pos++) : EOF;
+                while (c > ' ' && c != '"');
+
+                peek = c;
+                int end = c == EOF ? pos : pos - 1;
+
+                add(lastIndex, pos, start, end, false, null);
+                scanned(pos, peek);
+            }
+
+            lastIndex = pos;
+        }
+    }
+
+    protected void scanned(int pos, int peek)
+    {
+        readEnd[size - 1] = pos;
+        this.peek[size - 1] = peek;
+        scanned = size;
+    }
+
+    protected static int unescape(int c)
+    {
+        switch (c)
+        {
+            case 'a':
+                return 0x7;
+            case 'b':
+                return '\b';
+            case 'f':
+                return 0xC;
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'v':
+                return 0xB;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Everything from the given token on is joined again and split by single spaces, without interpreting quotes.
+     * The pieces are appended to the input, so the offsets of the previous tokens stay valid.
+     */
+    public ArgumentTokens uninterpreted(int from)
+    {
+        StringBuilder builder = new StringBuilder(input);
+        for (int i = from; i < size; i++)
+        {
+            if (i > from) builder.append(' ');
+            builder.append(input, rawStart[i], rawEnd[i]);
+        }
+
+        ArgumentTokens tokens = new ArgumentTokens(builder.toString(), Math.max(rawStart.length, 4));
+        tokens.copy(this, from);
+        tokens.scanned = Math.min(scanned, from);
+
+        // From CommandHandler limit -1, so we keep empty params
+        int start = input.length();
+        for (int i = start; i <= tokens.input.length(); i++)
+        {
+            if (i == tokens.input.length() || tokens.input.charAt(i) == ' ')
+            {
+                tokens.addExact(start, i);
+                start = i + 1;
+            }
+        }
+
+        return tokens;
+    }
+
+    protected void add(int from, int to, int valueStart, int valueEnd, boolean quoted, String escaped)
+    {
+        if (!quoted)
+        {
+            // Words are trimmed, quoted strings are kept as they are
+            while (from < to && input.charAt(from) <= ' ') from++;
+            while (to > from && input.charAt(to - 1) <= ' ') to--;
+        }
+
+        addExact(from, to, valueStart, valueEnd, quoted, escaped);
+    }
+
+    protected void addExact(int from, int to)
+    {
+        addExact(from, to, from, to, false, null);
+    }
+
+    protected void addExact(int from, int to, int valueStart, int valueEnd, boolean quoted, String escaped)
+    {
+        if (size == rawStart.length)
+        {
+            int capacity = size * 2;
+            rawStart = Arrays.copyOf(rawStart, capacity);
+            rawEnd = Arrays.copyOf(rawEnd, capacity);
+            this.valueStart = Arrays.copyOf(this.valueStart, capacity);
+            this.valueEnd = Arrays.copyOf(this.valueEnd, capacity);
+            this.quoted = Arrays.copyOf(this.quoted, capacity);
+            this.escaped = Arrays.copyOf(this.escaped, capacity);
+            readEnd = Arrays.copyOf(readEnd, capacity);
+            peek = Arrays.copyOf(peek, capacity);
+        }
+
+        rawStart[size] = from;
+        rawEnd[size] = to;
+        this.valueStart[size] = valueStart;
+        this.valueEnd[size] = valueEnd;
+        this.quoted[size] = quoted;
+        this.escaped[size] = escaped;
+        size++;
+    }
+
+    public String input()
+    {
+        return input;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * The number of tokens taken over from the previous tokens.
+     */
+    public int reused()
+    {
+        return reused;
+    }
+
+    public int rawStart(int index)
+    {
+        return rawStart[index];
+    }
+
+    public int rawEnd(int index)
+    {
+        return rawEnd[index];
+    }
+
+    public boolean isQuoted(int index)
+    {
+        return quoted[index];
+    }
+
+    public boolean rawStartsWith(int index, String prefix)
+    {
+        return rawEnd[index] - rawStart[index] >= prefix.length() && input.startsWith(prefix, rawStart[index]);
+    }
+
+    public String raw(int index)
+    {
+        return input.substring(rawStart[index], rawEnd[index]);
+    }
+
+    /**
+     * Where the parsed value starts in the input, or -1 if it had to be unescaped.
+     */
+    public int valueStart(int index)
+    {
+        return escaped[index] == null ? valueStart[index] : -1;
+    }
+
+    public int valueEnd(int index)
+    {
+        return escaped[index] == null ? valueEnd[index] : -1;
+    }
+
+    public String parsed(int index)
+    {
+        String escaped = this.escaped[index];
+        return escaped != null ? escaped : input.substring(valueStart[index], valueEnd[index]);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * The args from some offset on, without copying them. E.g. sub commands see their parent's args with the first one
+ * skipped. Only copied to a String[] at the {@link net.minecraft.command.ICommand} boundary.
+ */
+public class ArgumentView extends AbstractList<String> implements RandomAccess
+{
+    protected final String[] args;
+    protected final int offset;
+
+    protected ArgumentView(String[] args, int offset)
+    {
+        this.args = args;
+        this.offset = offset;
+    }
+
+    @Nonnull
+    public static ArgumentView of(String[] args)
+    {
+        return new ArgumentView(args, 0);
+    }
+
+    /**
+     * The args after the first count ones.
+     */
+    @Nonnull
+    public ArgumentView skip(int count)
+    {
+        return new ArgumentView(args, Math.min(offset + count, args.length));
+    }
+
+    @Override
+    public String get(int index)
+    {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException();
+        return args[offset + index];
+    }
+
+    @Override
+    public int size()
+    {
+        return args.length - offset;
+    }
+
+    public String last()
+    {
+        return get(size() - 1);
+    }
+
+    /**
+     * The args joined with spaces, like the command line they came from.
+     */
+    @Nonnull
+    public String join()
+    {
+        if (isEmpty())
+            return "";
+
+        StringBuilder builder = new StringBuilder(args[offset]);
+        for (int i = offset + 1; i < args.length; i++)
+            builder.append(' ').append(args[i]);
+        return builder.toString();
+    }
+
+    /**
+     * The skipped args joined with spaces, e.g. the sub command names that led here.
+     */
+    @Nonnull
+    public String skipped()
+    {
+        return String.join(" ", Arrays.asList(args).subList(0, offset));
+    }
+
+    /**
+     * The args as an array, for passing them on to an {@link net.minecraft.command.ICommand}. Only copies them
+     * if they don't start at the beginning of the backing array, so don't change the result.
+     */
+    @Nonnull
+    public String[] toArgs()
+    {
+        return offset == 0 ? args : toArray();
+    }
+
+    @Nonnull
+    @Override
+    public String[] toArray()
+    {
+        return Arrays.copyOfRange(args, offset, args.length);
+    }
+}
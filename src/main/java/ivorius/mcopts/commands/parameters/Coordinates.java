@@ -0,0 +1,235 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import ivorius.mcopts.MCOpts;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.NumberInvalidException;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.List;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Parses absolute and relative (~) coordinates like {@link CommandBase#parseDouble(double, String, int, int, boolean)},
+ * but reads them right from the command's input and doesn't allocate unless they are invalid.
+ * Anything but plain decimals (e.g. 1e3) and all errors are left to the vanilla method, so the results and messages
+ * stay the same.
+ */
+public class Coordinates
+{
+    public static final int MAX_XZ = 30000000;
+    public static final int MAX_Y = 256;
+
+    // Decimals of up to 15 digits and 22 fraction digits are exact after a single division
+    protected static final int MAX_DIGITS = 15;
+    protected static final double[] POWERS_OF_TEN = new double[23];
+
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    public static double parse(double base, String input, int min, int max, boolean centerBlock) throws NumberInvalidException
+    {
+        return parse(base, input, 0, input.length(), min, max, centerBlock);
+    }
+
+    /**
+     * Parses input.substring(start, end).
+     */
+    public static double parse(double base, String input, int start, int end, int min, int max, boolean centerBlock) throws NumberInvalidException
+    {
+        boolean relative = start < end && input.charAt(start) == '~';
+        int from = relative ? start + 1 : start;
+        if (relative ? base != base : from == end) // NaN
+            return CommandBase.parseDouble(base, input.substring(start, end), min, max, centerBlock);
+
+        double coordinate = relative ? base : 0.0;
+        if (from < end)
+        {
+            double offset = parseDecimal(input, from, end);
+            if (offset != offset)
+                return CommandBase.parseDouble(base, input.substring(start, end), min, max, centerBlock);
+
+            coordinate += offset;
+            if (!relative && centerBlock && !isDecimal(input, from, end))
+                coordinate += 0.5;
+        }
+
+        if ((min != 0 || max != 0) && (coordinate < min || coordinate > max))
+            return CommandBase.parseDouble(base, input.substring(start, end), min, max, centerBlock);
+
+        return coordinate;
+    }
+
+    protected static boolean isDecimal(String input, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+            if (input.charAt(i) == '.') return true;
+        return false;
+    }
+
+    /**
+     * Parses a plain decimal like -12.5, or returns NaN if it's anything else.
+     */
+    protected static double parseDecimal(String input, int start, int end)
+    {
+        int i = start;
+        boolean negative = false;
+        if (input.charAt(i) == '-' || input.charAt(i) == '+')
+            negative = input.charAt(i++) == '-';
+
+        long mantissa = 0;
+        int digits = 0, fraction = -1;
+        for (; i < end; i++)
+        {
+            char c = input.charAt(i);
+            if (c == '.' && fraction < 0)
+                fraction = 0;
+            else if (c >= '0' && c <= '9')
+            {
+                mantissa = mantissa * 10 + (c - '0');
+                if (++digits > MAX_DIGITS)
+                    return Double.NaN;
+                if (fraction >= 0)
+                    fraction++;
+            }
+            else
+                return Double.NaN;
+        }
+
+        if (digits == 0 || fraction >= POWERS_OF_TEN.length)
+            return Double.NaN;
+
+        double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * The index-th argument as a coordinate, or ~ if it's missing.
+     * NaN if the parameter evaluates to null.
+     */
+    protected static double coordinate(Parameter<String> p, List<String> list, int index, double base, int min, int max, boolean centerBlock) throws CommandException
+    {
+        String string;
+        if (p.isPlain())
+        {
+            if (!p.isSet() || index >= list.size())
+                return parse(base, "~", min, max, centerBlock);
+
+            if (list instanceof Parameters.Values)
+            {
+                Parameters.Values values = (Parameters.Values) list;
+                int start = values.start(index);
+                if (start >= 0)
+                    return parse(base, values.input(), start, values.end(index), min, max, centerBlock);
+            }
+
+            string = list.get(index);
+        }
+        else
+        {
+            Parameter.Result<String> result = index == 0 ? p.pipeline.evaluate(list) : p.move(index).evaluate();
+            if (result.isMissing())
+                return parse(base, "~", min, max, centerBlock);
+            string = result.get();
+        }
+
+        return string != null ? parse(base, string, min, max, centerBlock) : Double.NaN;
+    }
+
+    protected static double x(Parameter<String> p, List<String> list, int index, BlockPos ref, boolean centerBlock) throws CommandException
+    {
+        return coordinate(p, list, index, ref.getX(), -MAX_XZ, MAX_XZ, centerBlock);
+    }
+
+    protected static double y(Parameter<String> p, List<String> list, int index, BlockPos ref) throws CommandException
+    {
+        return coordinate(p, list, index, ref.getY(), 0, MAX_Y, false);
+    }
+
+    protected static double z(Parameter<String> p, List<String> list, int index, BlockPos ref, boolean centerBlock) throws CommandException
+    {
+        return coordinate(p, list, index, ref.getZ(), -MAX_XZ, MAX_XZ, centerBlock);
+    }
+
+    /**
+     * Parses the position into the given one, with missing coordinates being relative to ref.
+     */
+    public static BlockPos.MutableBlockPos pos(BlockPos.MutableBlockPos into, Parameter<String> xp, Parameter<String> yp, Parameter<String> zp, BlockPos ref, boolean centerBlock) throws CommandException
+    {
+        double x = x(xp, xp.params, 0, ref, centerBlock);
+        double y = y(yp, yp.params, 0, ref);
+        double z = z(zp, zp.params, 0, ref, centerBlock);
+        if (x != x || y != y || z != z)
+            throw MCOpts.translations.commandException("commands.parameters.invalid.generic", xp.name(0));
+        return into.setPos(x, y, z);
+    }
+
+    public static Parameter<BlockPos> pos(Parameter<String> xp, Parameter<String> yp, Parameter<String> zp, BlockPos ref, boolean centerBlock)
+    {
+        return xp.derive(list ->
+        {
+            try
+            {
+                double x = x(xp, list, 0, ref, centerBlock);
+                double y = y(yp, yp.params, 0, ref);
+                double z = z(zp, zp.params, 0, ref, centerBlock);
+                return Parameter.Result.of(x != x || y != y || z != z ? null : new BlockPos(x, y, z));
+            }
+            catch (CommandException e)
+            {
+                return Parameter.Result.error(e);
+            }
+        });
+    }
+
+    /**
+     * All arguments as positions, three coordinates each, flattened to x, y, z, x, y, z...
+     * A missing coordinate at the end is relative to ref.
+     */
+    public static Parameter<int[]> positions(Parameter<String> p, BlockPos ref, boolean centerBlock)
+    {
+        return p.derive(list ->
+        {
+            if (!p.isSet() || list.isEmpty())
+                return p.element(list, 0).cast();
+
+            int[] positions = new int[(list.size() + 2) / 3 * 3];
+            try
+            {
+                for (int i = 0; i < positions.length; i += 3)
+                {
+                    double x = x(p, list, i, ref, centerBlock);
+                    double y = y(p, list, i + 1, ref);
+                    double z = z(p, list, i + 2, ref, centerBlock);
+                    if (x != x || y != y || z != z)
+                        return Parameter.Result.of(null);
+
+                    positions[i] = floor(x);
+                    positions[i + 1] = floor(y);
+                    positions[i + 2] = floor(z);
+                }
+            }
+            catch (CommandException e)
+            {
+                return Parameter.Result.error(e);
+            }
+            return Parameter.Result.of(positions);
+        });
+    }
+
+    protected static int floor(double value)
+    {
+        int i = (int) value;
+        return value < i ? i - 1 : i;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+
+import javax.annotation.Nullable;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Parses, maps and filters a double without boxing it. Get the value with {@link #requireDouble()}.
+ */
+public class DoubleParameter extends PrimitiveParameter<Double>
+{
+    protected final DoubleEvaluation evaluation;
+    protected double value;
+
+    protected DoubleParameter(Parameter<String> string, boolean handlesMissing, DoubleEvaluation evaluation)
+    {
+        super(string, handlesMissing, evaluation::evaluate);
+        this.evaluation = evaluation;
+    }
+
+    public static DoubleParameter of(Parameter<String> string)
+    {
+        return new DoubleParameter(string, false, s -> CommandBase.parseDouble(s.value));
+    }
+
+    /**
+     * Fails for values outside min and max, like {@link CommandBase#parseDouble(String, double, double)}.
+     */
+    public static DoubleParameter of(Parameter<String> string, double min, double max)
+    {
+        return new DoubleParameter(string, false, s -> CommandBase.parseDouble(s.value, min, max));
+    }
+
+    public double requireDouble() throws CommandException
+    {
+        if (!evaluated)
+        {
+            value = evaluation.evaluate(argument());
+            evaluated = true;
+        }
+        return value;
+    }
+
+    public DoubleParameter mapDouble(Operator fun)
+    {
+        return new DoubleParameter(string, handlesMissing, s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public DoubleParameter filterDouble(DoublePredicate fun, @Nullable DoubleFunction<CommandException> exc)
+    {
+        return new DoubleParameter(string, handlesMissing, s ->
+        {
+            double value = evaluation.evaluate(s);
+            if (!fun.test(value) && exc != null) throw exc.apply(value);
+            return value;
+        });
+    }
+
+    public DoubleParameter orElseDouble(double other)
+    {
+        return new DoubleParameter(string, true, s ->
+        {
+            if (s.isMissing()) return other;
+
+            try
+            {
+                return evaluation.evaluate(s);
+            }
+            catch (ArgumentMissingException e)
+            {
+                return other;
+            }
+        });
+    }
+
+    public <O> Parameter<O> mapToObj(ToObject<O> fun)
+    {
+        return toObj(s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public interface Operator
+    {
+        double apply(double value) throws CommandException;
+    }
+
+    public interface ToObject<O>
+    {
+        O apply(double value) throws CommandException;
+    }
+
+    protected interface DoubleEvaluation
+    {
+        double evaluate(Result<String> string) throws CommandException;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+
+import javax.annotation.Nullable;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * An int parameter that is parsed, mapped and filtered without boxing. Get the value with {@link #requireInt()}.
+ */
+public class IntParameter extends PrimitiveParameter<Integer>
+{
+    protected final IntEvaluation evaluation;
+    protected int value;
+
+    protected IntParameter(Parameter<String> string, boolean handlesMissing, IntEvaluation evaluation)
+    {
+        super(string, handlesMissing, evaluation::evaluate);
+        this.evaluation = evaluation;
+    }
+
+    public static IntParameter of(Parameter<String> string)
+    {
+        return new IntParameter(string, false, s -> CommandBase.parseInt(s.value));
+    }
+
+    /**
+     * Fails for values outside min and max, like {@link CommandBase#parseInt(String, int, int)}.
+     */
+    public static IntParameter of(Parameter<String> string, int min, int max)
+    {
+        return new IntParameter(string, false, s -> CommandBase.parseInt(s.value, min, max));
+    }
+
+    public int requireInt() throws CommandException
+    {
+        if (!evaluated)
+        {
+            value = evaluation.evaluate(argument());
+            evaluated = true;
+        }
+        return value;
+    }
+
+    public IntParameter mapInt(Operator fun)
+    {
+        return new IntParameter(string, handlesMissing, s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public IntParameter filterInt(IntPredicate fun, @Nullable IntFunction<CommandException> exc)
+    {
+        return new IntParameter(string, handlesMissing, s ->
+        {
+            int value = evaluation.evaluate(s);
+            if (!fun.test(value) && exc != null) throw exc.apply(value);
+            return value;
+        });
+    }
+
+    public IntParameter orElseInt(int other)
+    {
+        return new IntParameter(string, true, s ->
+        {
+            if (s.isMissing()) return other;
+
+            try
+            {
+                return evaluation.evaluate(s);
+            }
+            catch (ArgumentMissingException e)
+            {
+                return other;
+            }
+        });
+    }
+
+    public <O> Parameter<O> mapToObj(ToObject<O> fun)
+    {
+        return toObj(s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public interface Operator
+    {
+        int apply(int value) throws CommandException;
+    }
+
+    public interface ToObject<O>
+    {
+        O apply(int value) throws CommandException;
+    }
+
+    protected interface IntEvaluation
+    {
+        int evaluate(Result<String> string) throws CommandException;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+
+import javax.annotation.Nullable;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Parses, maps and filters a long without boxing it. Get the value with {@link #requireLong()}.
+ */
+public class LongParameter extends PrimitiveParameter<Long>
+{
+    protected final LongEvaluation evaluation;
+    protected long value;
+
+    protected LongParameter(Parameter<String> string, boolean handlesMissing, LongEvaluation evaluation)
+    {
+        super(string, handlesMissing, evaluation::evaluate);
+        this.evaluation = evaluation;
+    }
+
+    public static LongParameter of(Parameter<String> string)
+    {
+        return new LongParameter(string, false, s -> CommandBase.parseLong(s.value));
+    }
+
+    /**
+     * Fails for values outside min and max, like {@link CommandBase#parseLong(String, long, long)}.
+     */
+    public static LongParameter of(Parameter<String> string, long min, long max)
+    {
+        return new LongParameter(string, false, s -> CommandBase.parseLong(s.value, min, max));
+    }
+
+    public long requireLong() throws CommandException
+    {
+        if (!evaluated)
+        {
+            value = evaluation.evaluate(argument());
+            evaluated = true;
+        }
+        return value;
+    }
+
+    public LongParameter mapLong(Operator fun)
+    {
+        return new LongParameter(string, handlesMissing, s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public LongParameter filterLong(LongPredicate fun, @Nullable LongFunction<CommandException> exc)
+    {
+        return new LongParameter(string, handlesMissing, s ->
+        {
+            long value = evaluation.evaluate(s);
+            if (!fun.test(value) && exc != null) throw exc.apply(value);
+            return value;
+        });
+    }
+
+    public LongParameter orElseLong(long other)
+    {
+        return new LongParameter(string, true, s ->
+        {
+            if (s.isMissing()) return other;
+
+            try
+            {
+                return evaluation.evaluate(s);
+            }
+            catch (ArgumentMissingException e)
+            {
+                return other;
+            }
+        });
+    }
+
+    public <O> Parameter<O> mapToObj(ToObject<O> fun)
+    {
+        return toObj(s -> fun.apply(evaluation.evaluate(s)));
+    }
+
+    public interface Operator
+    {
+        long apply(long value) throws CommandException;
+    }
+
+    public interface ToObject<O>
+    {
+        O apply(long value) throws CommandException;
+    }
+
+    protected interface LongEvaluation
+    {
+        long evaluate(Result<String> string) throws CommandException;
+    }
+}
@@ -31,16 +31,12 @@ public class MCP
     // Since CommandBase's version requires a sender
     public static BlockPos parseBlockPos(BlockPos blockpos, String[] args, int startIndex, boolean centerBlock) throws NumberInvalidException
     {
-        return new BlockPos(CommandBase.parseDouble((double) blockpos.getX(), args[startIndex], -30000000, 30000000, centerBlock), CommandBase.parseDouble((double) blockpos.getY(), args[startIndex + 1], 0, 256, false), CommandBase.parseDouble((double) blockpos.getZ(), args[startIndex + 2], -30000000, 30000000, centerBlock));
+        return new BlockPos(Coordinates.parse((double) blockpos.getX(), args[startIndex], -Coordinates.MAX_XZ, Coordinates.MAX_XZ, centerBlock), Coordinates.parse((double) blockpos.getY(), args[startIndex + 1], 0, Coordinates.MAX_Y, false), Coordinates.parse((double) blockpos.getZ(), args[startIndex + 2], -Coordinates.MAX_XZ, Coordinates.MAX_XZ, centerBlock));
     }
 
     public static Function<Parameter<String>, Parameter<BlockPos>> pos(Parameter<String> yp, Parameter<String> zp, BlockPos ref, boolean centerBlock)
     {
-        return xp -> xp.orElse("~").flatMap(x ->
-                yp.orElse("~").flatMap(y ->
-                        zp.orElse("~").map(z ->
-                                parseBlockPos(ref, new String[]{x, y, z}, 0, centerBlock)
-                        )));
+        return xp -> Coordinates.pos(xp, yp, zp, ref, centerBlock);
     }
 
     public static Function<Parameter<String>, Parameter<BlockPos>> pos(BlockPos ref, boolean centerBlock)
@@ -53,6 +49,14 @@ public class MCP
         return p -> p.get(x).to(pos(p.get(y), p.get(z), ref, centerBlock));
     }
 
+    /**
+     * Any number of positions, e.g. from {@link Parameters#get(int)}, as x, y, z, x, y, z...
+     */
+    public static Function<Parameter<String>, Parameter<int[]>> positions(BlockPos ref, boolean centerBlock)
+    {
+        return p -> Coordinates.positions(p, ref, centerBlock);
+    }
+
     public static Parameter<Biome> biome(Parameter<String> p)
     {
         return p.map(ResourceLocation::new)
@@ -127,9 +131,9 @@ public class MCP
 
     public static Parameter<Rotation> rotation(Parameter<String> p)
     {
-        return p.map(CommandBase::parseInt)
-                .map(i -> i > 40 ? i / 90 : i)
-                .map(MCP::rotationFromInt);
+        return NaP.asIntParameter(p)
+                .mapInt(i -> i > 40 ? i / 90 : i)
+                .mapToObj(MCP::rotationFromInt);
     }
 
     public static Rotation rotationFromInt(int rotation)
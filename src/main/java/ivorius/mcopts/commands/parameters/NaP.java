@@ -21,7 +21,17 @@ public class NaP
 
     public static Parameter<Integer> asInt(Parameter<String> p)
     {
-        return p.map(CommandBase::parseInt);
+        return IntParameter.of(p);
+    }
+
+    public static IntParameter asIntParameter(Parameter<String> p)
+    {
+        return IntParameter.of(p);
+    }
+
+    public static IntParameter asIntParameter(Parameter<String> p, int min, int max)
+    {
+        return IntParameter.of(p, min, max);
     }
 
     public static Parameter<Boolean> asBoolean(Parameter<String> p)
@@ -33,12 +43,32 @@ public class NaP
 
     public static Parameter<Double> asDouble(Parameter<String> p)
     {
-        return p.map(CommandBase::parseDouble);
+        return DoubleParameter.of(p);
+    }
+
+    public static DoubleParameter asDoubleParameter(Parameter<String> p)
+    {
+        return DoubleParameter.of(p);
+    }
+
+    public static DoubleParameter asDoubleParameter(Parameter<String> p, double min, double max)
+    {
+        return DoubleParameter.of(p, min, max);
     }
 
     public static Parameter<Long> asLong(Parameter<String> p)
     {
-        return p.map(CommandBase::parseLong);
+        return LongParameter.of(p);
+    }
+
+    public static LongParameter asLongParameter(Parameter<String> p)
+    {
+        return LongParameter.of(p);
+    }
+
+    public static LongParameter asLongParameter(Parameter<String> p, long min, long max)
+    {
+        return LongParameter.of(p, min, max);
     }
 
     public static Parameter<String[]> varargs(Parameter<String> p)
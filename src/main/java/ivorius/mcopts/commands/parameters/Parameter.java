@@ -6,6 +6,7 @@
 package ivorius.mcopts.commands.parameters;
 
 import ivorius.mcopts.MCOpts;
+import ivorius.mcopts.translation.ServerTranslations;
 import net.minecraft.command.CommandException;
 
 import javax.annotation.Nonnull;
@@ -29,22 +30,24 @@ public class Parameter<T>
     protected final List<String> params;
 
     @Nonnull
-    protected final Function<List<String>, T> fun;
+    protected final Pipeline<T> pipeline;
+    protected Function<List<String>, T> fun;
+
+    // Evaluated once, on first use
+    protected Result<T> result;
 
     public Parameter(Parameter<T> other)
     {
         moved = other.moved;
         name = other.name;
         params = other.params;
-        fun = other.fun;
+        pipeline = other.pipeline;
+        result = other.result;
     }
 
     public Parameter(Parameter<?> other, @Nonnull Function<List<String>, T> fun)
     {
-        moved = other.moved;
-        name = other.name;
-        params = other.params;
-        this.fun = fun;
+        this(new Pipeline<>(Evaluation.of(fun)), other.moved, other.name, other.params);
     }
 
     public Parameter(int moved, String name, List<String> params, @Nullable Function<List<String>, T> fun)
@@ -52,8 +55,18 @@ public class Parameter<T>
         this.moved = moved;
         this.name = name;
         this.params = params;
+        Function<List<String>, ?> source = fun != null ? fun : initial();
         //noinspection unchecked
-        this.fun = fun != null ? fun : (Function<List<String>, T>) initial();
+        this.pipeline = new Pipeline<>(source instanceof Parameter.Element
+                ? (Evaluation<T>) source : Evaluation.of((Function<List<String>, T>) source));
+    }
+
+    protected Parameter(@Nonnull Pipeline<T> pipeline, int moved, String name, List<String> params)
+    {
+        this.moved = moved;
+        this.name = name;
+        this.params = params;
+        this.pipeline = pipeline;
     }
 
     public static Parameter<String> makeUp(String name, int moved, String... params)
@@ -70,13 +83,42 @@ public class Parameter<T>
     {
         if (name != null && index == 0)
             return Parameters.LONG_FLAG_PREFIX + name;
-        return String.format("%s(%d)", name != null ? Parameters.LONG_FLAG_PREFIX + name + " " : "", Math.max(moved, 0) + index);
+        return (name != null ? Parameters.LONG_FLAG_PREFIX + name + " (" : "(") + (Math.max(moved, 0) + index) + ")";
     }
 
     @Nonnull
     protected Function<List<String>, String> initial()
     {
-        return list -> get(list, 0);
+        return new Element();
+    }
+
+    /**
+     * Whether the parameter evaluates to its arguments as they are, so they can be read directly.
+     */
+    protected boolean isPlain()
+    {
+        return pipeline.stages.length == 0 && pipeline.source instanceof Parameter.Element;
+    }
+
+    /**
+     * The same arguments, evaluated from scratch.
+     */
+    protected <O> Parameter<O> derive(@Nonnull Evaluation<O> evaluation)
+    {
+        return new Parameter<>(new Pipeline<>(evaluation), moved, name, params);
+    }
+
+    /**
+     * The same arguments, with one more stage at the end of the pipeline.
+     */
+    protected <O> Parameter<O> then(@Nonnull Stage stage)
+    {
+        return new Parameter<>(pipeline.then(stage), moved, name, params);
+    }
+
+    protected <O> Parameter<O> thenValue(@Nonnull ValueStage stage)
+    {
+        return new Parameter<>(pipeline.then(stage), moved, name, params);
     }
 
     // Size
@@ -88,11 +130,14 @@ public class Parameter<T>
 
     protected <L> L get(List<L> list, int idx) throws CommandException
     {
-        if (!isSet())
-            throw NotSetException.create(this, idx);
-        if (list.isEmpty())
-            throw ArgumentMissingException.create(this, idx);
-        return list.get(idx);
+        return element(list, idx).get();
+    }
+
+    protected <L> Result<L> element(List<L> list, int idx)
+    {
+        if (!isSet() || list.isEmpty())
+            return Result.missing(this, idx);
+        return Result.of(list.get(idx));
     }
 
     public int count()
@@ -110,9 +155,20 @@ public class Parameter<T>
     @Nonnull
     public Function<List<String>, T> function()
     {
+        Function<List<String>, T> fun = this.fun;
+        if (fun == null)
+            this.fun = fun = list -> pipeline.evaluate(list).get();
         return fun;
     }
 
+    protected Result<T> evaluate()
+    {
+        Result<T> result = this.result;
+        if (result == null)
+            this.result = result = pipeline.evaluate(params);
+        return result;
+    }
+
     public Parameter<T> filter(Predicate<T> fun)
     {
         return filter(fun, null);
@@ -120,12 +176,8 @@ public class Parameter<T>
 
     public Parameter<T> filter(Predicate<T> fun, @Nullable Function<T, CommandException> esc)
     {
-        return new Parameter<T>(this, s ->
-        {
-            T t = function().apply(s);
-            if (!fun.test(t) && esc != null) throw esc.apply(t);
-            return t;
-        });
+        //noinspection unchecked
+        return thenValue(value -> fun.test((T) value) || esc == null ? value : Result.failed(esc, (T) value));
     }
 
     public <O> Parameter<O> to(java.util.function.Function<Parameter<T>, Parameter<O>> fun)
@@ -147,28 +199,34 @@ public class Parameter<T>
 
     public <O> Parameter<O> map(Function<T, O> fun, @Nullable Function<T, CommandException> exc)
     {
-        return new Parameter<>(this, s ->
+        return thenValue(value ->
         {
-            T t = function().apply(s);
-            if (t == null) return null;
-
-            O o = fun.apply(t);
-            if (o == null && exc != null) throw exc.apply(t);
+            if (value == null) return null;
 
-            return o;
+            //noinspection unchecked
+            T t = (T) value;
+            O o;
+            try
+            {
+                o = fun.apply(t);
+            }
+            catch (CommandException e)
+            {
+                return Result.error(e);
+            }
+            return o == null && exc != null ? Result.failed(exc, t) : o;
         });
     }
 
     public <O> Parameter<O> flatMap(Function<T, Parameter<O>> fun)
     {
-        return new Parameter<>(this, s ->
+        return then(t ->
         {
-            T t = function().apply(s);
-
-            if (t == null) return null;
+            if (!t.isPresent() || t.value == null) return t;
 
-            Parameter<O> po = fun.apply(t);
-            return po.function().apply(po.params);
+            //noinspection unchecked
+            Result<Parameter<O>> po = Result.apply(fun, (T) t.value);
+            return po.isPresent() ? po.value.evaluate() : po;
         });
     }
 
@@ -179,40 +237,21 @@ public class Parameter<T>
 
     public Parameter<T> orElseGet(Supplier<T> supplier)
     {
-        return new Parameter<T>(this, s ->
-        {
-            try
-            {
-                return function().apply(s);
-            }
-            catch (ArgumentMissingException e)
-            {
-                return supplier.get();
-            }
-        });
+        return then(t -> t.isMissing() ? Result.apply(x -> supplier.get(), null) : t);
     }
 
     @Nonnull
     public T require() throws CommandException
     {
-        T t = function().apply(params);
+        T t = evaluate().get();
         if (t == null) throw MCOpts.translations.commandException("commands.parameters.invalid.generic", name(0));
         return t;
     }
 
     public Optional<T> optional() throws CommandException
     {
-        T t = null;
-
-        try
-        {
-            t = function().apply(params);
-        }
-        catch (ArgumentMissingException ignored)
-        {
-        }
-
-        return Optional.ofNullable(t);
+        Result<T> t = evaluate();
+        return t.isMissing() ? Optional.empty() : Optional.ofNullable(t.get());
     }
 
     public T get()
@@ -223,28 +262,25 @@ public class Parameter<T>
 
     public Optional<T> tryGet()
     {
-        T t = null;
-
-        try
-        {
-            t = function().apply(params);
-        }
-        catch (CommandException ignored)
-        {
-        }
-
-        return Optional.ofNullable(t);
+        Result<T> t = evaluate();
+        return t.isPresent() ? Optional.ofNullable(t.value) : Optional.empty();
     }
 
     // Rest as arguments
 
     public Parameter<T> rest(BinaryOperator<T> operator)
     {
-        return new Parameter<>(this, p ->
+        return derive(p ->
         {
-            T t = function().apply(Collections.singletonList(get(p, 0)));
-            for (int i = 1; i < p.size(); i++)
-                t = operator.apply(t, function().apply(Collections.singletonList(p.get(i))));
+            Result<String> first = element(p, 0);
+            if (!first.isPresent()) return first.cast();
+
+            Result<T> t = pipeline.evaluate(Collections.singletonList(first.value));
+            for (int i = 1; i < p.size() && t.isPresent(); i++)
+            {
+                Result<T> next = pipeline.evaluate(Collections.singletonList(p.get(i)));
+                t = next.isPresent() ? Result.of(operator.apply(t.value, next.value)) : next;
+            }
             return t;
         });
     }
@@ -253,7 +289,7 @@ public class Parameter<T>
     {
         //noinspection unchecked
         return idx == 0 ? (Parameter) this
-                : new Parameter<>(isSet() ? moved + idx : moved, name, params.subList(Math.min(idx, params.size()), params.size()), fun);
+                : new Parameter<>(pipeline, isSet() ? moved + idx : moved, name, params.subList(Math.min(idx, params.size()), params.size()));
     }
 
     public Parameter<T[]> varargs(IntFunction<T[]> init)
@@ -263,12 +299,20 @@ public class Parameter<T>
 
     public Parameter<List<T>> varargsList()
     {
-        return new Parameter<>(this, p ->
+        return derive(p ->
         {
-            get(p, 0); // Require a list size of > 0, if not required the user can just use optional()
+            // Require a list size of > 0, if not required the user can just use optional()
+            Result<String> first = element(p, 0);
+            if (!first.isPresent()) return first.cast();
+
             List<T> list = new ArrayList<>(p.size());
-            for (String param : p) list.add(function().apply(Collections.singletonList(param)));
-            return list;
+            for (String param : p)
+            {
+                Result<T> t = pipeline.evaluate(Collections.singletonList(param));
+                if (!t.isPresent()) return t.cast();
+                list.add(t.value);
+            }
+            return Result.of(list);
         });
     }
 
@@ -277,6 +321,219 @@ public class Parameter<T>
         return varargsList().map(Collection::stream);
     }
 
+    protected interface Evaluation<T>
+    {
+        static <T> Evaluation<T> of(Function<List<String>, T> fun)
+        {
+            return list -> Result.apply(fun, list);
+        }
+
+        Result<T> evaluate(List<String> params);
+    }
+
+    /**
+     * The first argument. Evaluated directly, so missing arguments don't need to be thrown.
+     */
+    protected class Element implements Evaluation<String>, Function<List<String>, String>
+    {
+        @Override
+        public Result<String> evaluate(List<String> params)
+        {
+            return element(params, 0);
+        }
+
+        @Override
+        public String apply(List<String> params) throws CommandException
+        {
+            return evaluate(params).get();
+        }
+    }
+
+    protected interface Stage
+    {
+        Result<?> apply(Result<?> result);
+    }
+
+    /**
+     * A stage that only sees values, e.g. for map and filter.
+     */
+    protected interface ValueStage
+    {
+        /**
+         * @return The next value, or a {@link Result} if evaluation fails.
+         */
+        Object apply(@Nullable Object value);
+    }
+
+    /**
+     * Evaluates the arguments and then applies each stage in turn.
+     * Consecutive value stages are fused, so their values are passed on without wrapping them in between.
+     */
+    protected static class Pipeline<T>
+    {
+        protected final Evaluation<?> source;
+        protected final Stage[] stages;
+
+        public Pipeline(Evaluation<T> source)
+        {
+            this(source, new Stage[0]);
+        }
+
+        protected Pipeline(Evaluation<?> source, Stage[] stages)
+        {
+            this.source = source;
+            this.stages = stages;
+        }
+
+        public <O> Pipeline<O> then(Stage stage)
+        {
+            Stage[] stages = Arrays.copyOf(this.stages, this.stages.length + 1);
+            stages[stages.length - 1] = stage;
+            return new Pipeline<>(source, stages);
+        }
+
+        public <O> Pipeline<O> then(ValueStage stage)
+        {
+            Stage last = stages.length > 0 ? stages[stages.length - 1] : null;
+            if (!(last instanceof Fused))
+                return then(new Fused(stage));
+
+            Stage[] stages = this.stages.clone();
+            stages[stages.length - 1] = ((Fused) last).then(stage);
+            return new Pipeline<>(source, stages);
+        }
+
+        public Result<T> evaluate(List<String> params)
+        {
+            Result<?> result = source.evaluate(params);
+            for (Stage stage : stages)
+                result = stage.apply(result);
+            //noinspection unchecked
+            return (Result<T>) result;
+        }
+    }
+
+    protected static class Fused implements Stage
+    {
+        protected final ValueStage[] stages;
+
+        public Fused(ValueStage... stages)
+        {
+            this.stages = stages;
+        }
+
+        public Fused then(ValueStage stage)
+        {
+            ValueStage[] stages = Arrays.copyOf(this.stages, this.stages.length + 1);
+            stages[stages.length - 1] = stage;
+            return new Fused(stages);
+        }
+
+        @Override
+        public Result<?> apply(Result<?> result)
+        {
+            if (!result.isPresent())
+                return result;
+
+            Object value = result.value;
+            for (ValueStage stage : stages)
+            {
+                value = stage.apply(value);
+                if (value instanceof Result)
+                    return (Result<?>) value;
+            }
+            return value == result.value ? result : Result.of(value);
+        }
+    }
+
+    /**
+     * What evaluating a parameter came to: a value, a missing argument or an error.
+     * Missing arguments only become exceptions if they aren't handled by e.g. {@link #orElse(Object)}.
+     */
+    protected static class Result<T>
+    {
+        protected static final Result<?> NULL = new Result<>(null, null, null, 0);
+
+        @Nullable
+        protected final T value;
+        @Nullable
+        protected final CommandException error;
+
+        @Nullable
+        protected final Parameter<?> missing;
+        protected final int index;
+
+        protected Result(@Nullable T value, @Nullable CommandException error, @Nullable Parameter<?> missing, int index)
+        {
+            this.value = value;
+            this.error = error;
+            this.missing = missing;
+            this.index = index;
+        }
+
+        public static <T> Result<T> of(@Nullable T value)
+        {
+            //noinspection unchecked
+            return value != null ? new Result<>(value, null, null, 0) : (Result<T>) NULL;
+        }
+
+        public static <T> Result<T> missing(Parameter<?> parameter, int index)
+        {
+            return new Result<>(null, null, parameter, index);
+        }
+
+        public static <T> Result<T> error(CommandException error)
+        {
+            return new Result<>(null, error, null, 0);
+        }
+
+        public static <T, O> Result<O> apply(Function<T, O> fun, T t)
+        {
+            try
+            {
+                return of(fun.apply(t));
+            }
+            catch (CommandException e)
+            {
+                return error(e);
+            }
+        }
+
+        public static <T, O> Result<O> failed(Function<T, CommandException> exc, T t)
+        {
+            Result<CommandException> e = apply(exc, t);
+            return error(e.isPresent() ? e.value : e.error);
+        }
+
+        public boolean isPresent()
+        {
+            return missing == null && error == null;
+        }
+
+        public boolean isMissing()
+        {
+            return missing != null || error instanceof ArgumentMissingException;
+        }
+
+        public T get() throws CommandException
+        {
+            if (missing != null)
+                throw missing.isSet() ? ArgumentMissingException.create(missing, index) : NotSetException.create(missing, index);
+            if (error != null)
+                throw error;
+            return value;
+        }
+
+        /**
+         * For results without value.
+         */
+        public <O> Result<O> cast()
+        {
+            //noinspection unchecked
+            return (Result<O>) this;
+        }
+    }
+
     public interface Supplier<T>
     {
         T get() throws CommandException;
@@ -287,16 +544,48 @@ public class Parameter<T>
         O apply(T t) throws CommandException;
     }
 
+    /**
+     * Often caught to fall back to defaults, so the message is only translated when read.
+     */
     public static class ArgumentMissingException extends CommandException
     {
+        @Nullable
+        protected final ServerTranslations.Translation translation;
+
         private ArgumentMissingException(String message, Object... objects)
         {
             super(message, objects);
+            translation = null;
+        }
+
+        private ArgumentMissingException(@Nonnull ServerTranslations.Translation translation)
+        {
+            super(translation.key());
+            this.translation = translation;
         }
 
         public static ArgumentMissingException create(Parameter parameter, int index)
         {
-            return MCOpts.translations.object(ArgumentMissingException::new, "commands.parameters.missing", parameter.name(index));
+            return new ArgumentMissingException(MCOpts.translations.translation("commands.parameters.missing", parameter.name(index)));
+        }
+
+        @Override
+        public String getMessage()
+        {
+            return translation != null ? translation.message() : super.getMessage();
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            // Missing arguments are expected, and mostly handled right away
+            return this;
+        }
+
+        @Override
+        public Object[] getErrorObjects()
+        {
+            return translation != null ? translation.params() : super.getErrorObjects();
         }
     }
 
@@ -307,9 +596,14 @@ public class Parameter<T>
             super(message, objects);
         }
 
+        private NotSetException(@Nonnull ServerTranslations.Translation translation)
+        {
+            super(translation);
+        }
+
         public static NotSetException create(Parameter parameter, int index)
         {
-            return MCOpts.translations.object(NotSetException::new, "commands.parameters.missing.argument", parameter.name(index));
+            return new NotSetException(MCOpts.translations.translation("commands.parameters.missing.argument", parameter.name(index)));
         }
     }
 }
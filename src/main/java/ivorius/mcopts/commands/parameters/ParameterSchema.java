@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import gnu.trove.map.TObjectIntMap;
+import net.minecraft.command.CommandException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * The declarations of a {@link Parameters} (flags, aliases, restrictions, until) in an immutable form.
+ * Aliases are already resolved to their roots, so building only needs to allocate the results.
+ * Create one using {@link Parameters#schema()}, e.g. <code>new Parameters().flag("f").schema()</code>.
+ */
+public class ParameterSchema
+{
+    protected final TObjectIntMap<String> restrictFlags;
+    protected final Set<String> declaredFlags;
+    protected final Map<String, String> alias;
+    protected final int until;
+
+    // Interned parameter ids, 0 being the ordered parameters
+    protected final TObjectIntMap<String> ids;
+    protected final List<String> names;
+
+    protected ParameterSchema(TObjectIntMap<String> restrictFlags, Set<String> declaredFlags, Map<String, String> alias, int until, TObjectIntMap<String> ids, List<String> names)
+    {
+        this.restrictFlags = restrictFlags;
+        this.declaredFlags = declaredFlags;
+        this.alias = alias;
+        this.until = until;
+        this.ids = ids;
+        this.names = names;
+    }
+
+    public Parameters build(String[] args) throws CommandException
+    {
+        return new Parameters(this).build(args);
+    }
+
+    public Parameters build(ArgumentView args) throws CommandException
+    {
+        return new Parameters(this).build(args);
+    }
+
+    public Parameters buildLenient(String[] args)
+    {
+        return new Parameters(this).buildLenient(args);
+    }
+
+    /**
+     * @see Parameters#buildLenient(String[], Parameters)
+     */
+    public Parameters buildLenient(String[] args, @Nullable Parameters previous)
+    {
+        return new Parameters(this).buildLenient(args, previous);
+    }
+
+    @Nonnull
+    public String root(@Nonnull String name)
+    {
+        return alias.getOrDefault(name, name);
+    }
+
+    /**
+     * The id parameters built from this schema know the (root) name by, or -1 if it wasn't declared.
+     */
+    public int id(@Nullable String name)
+    {
+        return name == null ? 0 : ids.get(name);
+    }
+
+    public boolean isFlag(@Nonnull String name)
+    {
+        return declaredFlags.contains(root(name));
+    }
+
+    public boolean isDeclared(String name)
+    {
+        return restrictFlags.containsKey(name != null ? root(name) : null);
+    }
+
+    public int until()
+    {
+        return until;
+    }
+}
@@ -5,26 +5,22 @@
 
 package ivorius.mcopts.commands.parameters;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.ListMultimap;
 import com.google.common.primitives.Doubles;
+import gnu.trove.impl.Constants;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import ivorius.mcopts.MCOpts;
 import ivorius.mcopts.commands.parameters.expect.Expect;
+import ivorius.mcopts.reflection.SafeReflector;
 import net.minecraft.command.CommandException;
-import net.minecraftforge.fml.relauncher.ReflectionHelper;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
-import java.io.IOException;
-import java.io.StreamTokenizer;
+import javax.annotation.Nullable;
 import java.io.StringReader;
 import java.util.*;
 import java.util.function.Function;
 import java.util.regex.Matcher;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -36,17 +32,80 @@ public class Parameters
     public static final String SHORT_FLAG_PREFIX = "-";
     public static final String LONG_FLAG_PREFIX = "--";
 
-    protected List<Pair<String, String>> raw;
+    protected static final String[] SHORT_NAMES = new String[128];
 
-    protected Set<String> flags = new HashSet<>();
-    protected ListMultimap<String, String> params = ArrayListMultimap.create();
-    protected ListMultimap<String, String> rawParams = ArrayListMultimap.create();
-    protected List<String> order = new ArrayList<>();
+    static
+    {
+        for (char c = 0; c < SHORT_NAMES.length; c++)
+            SHORT_NAMES[c] = String.valueOf(c);
+    }
+
+    protected ArgumentTokens tokens;
+
+    // Parameter ids, 0 being the ordered parameters
+    protected TObjectIntMap<String> ids;
+    protected List<String> names;
+    protected boolean sharedIds;
+
+    // Per id
+    protected int[] flagCounts;
+    protected int[][] values;
+    protected int[] valueCounts;
+
+    // Per value, in order
+    protected int valueCount;
+    protected int[] valueIds;
+    protected int[] valueTokens;
+    /**
+     * -1 for the token's parsed value, otherwise the value is the given span of the input (e.g. -fvalue).
+     */
+    protected int[] valueStarts;
+    protected int[] valueEnds;
+    protected String[] valueStrings;
+
+    // For incremental builds: the flags in order, and the state before each token to continue building from
+    protected int[] flagIds;
+    protected int flagCount;
+    protected int checkpoints;
+    protected int[] checkpointValues;
+    protected int[] checkpointFlags;
+    protected int[] checkpointUntil;
+    protected int[] checkpointNames;
+
+    protected TObjectIntMap<String> restrictFlags;
+    protected Set<String> declaredFlags;
+    protected Map<String, String> alias;
+    protected int until;
+
+    protected ParameterSchema schema;
 
-    protected TObjectIntMap<String> restrictFlags = new TObjectIntHashMap<>();
-    protected Set<String> declaredFlags = new HashSet<>();
-    protected Map<String, String> alias = new HashMap<>();
-    protected int until = -1;
+    public Parameters()
+    {
+        restrictFlags = new TObjectIntHashMap<>();
+        declaredFlags = new HashSet<>();
+        alias = new HashMap<>();
+        until = -1;
+
+        ids = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+        names = new ArrayList<>();
+        names.add(null);
+    }
+
+    /**
+     * Shares the schema's declarations, which can then no longer be changed.
+     */
+    public Parameters(ParameterSchema schema)
+    {
+        this.schema = schema;
+        restrictFlags = schema.restrictFlags;
+        declaredFlags = schema.declaredFlags;
+        alias = schema.alias;
+        until = schema.until;
+
+        ids = schema.ids;
+        names = schema.names;
+        sharedIds = true;
+    }
 
     public static Parameters of(String[] args, Function<Parameters, Parameters> c) throws CommandException
     {
@@ -54,6 +113,12 @@ public class Parameters
         return (c != null ? c.apply(parameters) : parameters).build(args);
     }
 
+    public static Parameters of(ArgumentView args, Function<Parameters, Parameters> c) throws CommandException
+    {
+        Parameters parameters = new Parameters();
+        return (c != null ? c.apply(parameters) : parameters).build(args);
+    }
+
     public static Parameters ofLenient(String[] args, Function<Parameters, Parameters> c)
     {
         Parameters parameters = new Parameters();
@@ -77,76 +142,27 @@ public class Parameters
 
     public static String[] quoted(String[] args)
     {
-        return parse(args).map(Pair::getRight).toArray(String[]::new);
+        ArgumentTokens tokens = ArgumentTokens.tokenize(args);
+        String[] quoted = new String[tokens.size()];
+        for (int i = 0; i < quoted.length; i++)
+            quoted[i] = tokens.parsed(i);
+        return quoted;
     }
 
     public static Stream<Pair<String, String>> parse(String[] args)
     {
-        String full = String.join(" ", args);
-        StringReader reader = new StringReader(full);
-
-        StreamTokenizer tokenizer = new StreamTokenizer(reader);
-        tokenizer.resetSyntax();
-        tokenizer.wordChars(0, Integer.MAX_VALUE);
-        tokenizer.whitespaceChars(0, ' ');
-        tokenizer.quoteChar('"');
-
-        List<String> parsed = new ArrayList<>();
-        List<String> raw = new ArrayList<>();
-        int last_tt = StreamTokenizer.TT_EOF;
-        int lastIndex = 0;
-        try
-        {
-            while (tokenizer.nextToken() != StreamTokenizer.TT_EOF)
-            {
-                int idx = Math.min(index(reader), full.length());
-
-                String arg = tokenizer.sval;
-                String argRaw = full.substring(lastIndex, idx);
-
-                parsed.add(arg);
-                raw.add(tokenizer.ttype != '\"' ? argRaw.trim() : argRaw);
-
-                lastIndex = idx;
-                last_tt = tokenizer.ttype;
-            }
-        }
-        catch (IOException e)
-        {
-            // Should never happen
-            MCOpts.logger.error("Error reading string", e);
-        }
-
-        reader.close();
-
-        if (args.length > 0 && args[args.length - 1].length() == 0)
-        {
-            String lastRaw = raw.size() > 0 ? Iterables.getLast(raw) : null;
-            // Are we in an open quote?
-            if (!(last_tt == '\"' && (lastRaw == null || lastRaw.charAt(lastRaw.length() - 1) != '\"')))
-            {
-                // We are currently writing a new param
-                parsed.add("");
-                raw.add("");
-            }
-        }
-
-        return IntStream.range(0, parsed.size())
-                .mapToObj(i -> Pair.of(raw.get(i), parsed.get(i)));
+        ArgumentTokens tokens = ArgumentTokens.tokenize(args);
+        return IntStream.range(0, tokens.size())
+                .mapToObj(i -> Pair.of(tokens.raw(i), tokens.parsed(i)));
     }
 
+    /**
+     * @deprecated Reads a private JDK field, which newer JVMs don't allow. The field is only looked up when first used.
+     */
+    @Deprecated
     public static int index(StringReader reader)
     {
-        try
-        {
-            return ReflectionHelper.findField(StringReader.class, "next").getInt(reader);
-        }
-        catch (IllegalAccessException e)
-        {
-            MCOpts.logger.error("Error trying to get next", e);
-        }
-
-        return 0;
+        return SafeReflector.field(StringReader.class, "next").getInt(reader, 0);
     }
 
     @Nonnull
@@ -169,11 +185,21 @@ public class Parameters
     }
 
     public Parameters build(String[] args) throws CommandException
+    {
+        return build(ArgumentView.of(args));
+    }
+
+    public Parameters build(ArgumentView args) throws CommandException
     {
         return buildRaw(args, false);
     }
 
     public Parameters buildLenient(String[] args)
+    {
+        return buildLenient(ArgumentView.of(args));
+    }
+
+    public Parameters buildLenient(ArgumentView args)
     {
         try
         {
@@ -185,56 +211,109 @@ public class Parameters
         }
     }
 
+    /**
+     * Builds leniently, continuing from the previous result where the arguments didn't change.
+     * Useful when the same argument line is parsed over and over while it's being typed.
+     *
+     * @param previous The result of an earlier incremental build from the same schema, or null.
+     */
+    public Parameters buildLenient(String[] args, @Nullable Parameters previous)
+    {
+        return buildLenient(ArgumentView.of(args), previous);
+    }
+
+    public Parameters buildLenient(ArgumentView args, @Nullable Parameters previous)
+    {
+        if (previous != null && (schema == null || previous.schema != schema))
+            previous = null;
+
+        try
+        {
+            return buildRaw(args, true, previous, true);
+        }
+        catch (CommandException e)
+        {
+            throw new InternalError();
+        }
+    }
+
     public Parameters buildRaw(String[] args, boolean lenient) throws CommandException
     {
-        raw = new ArrayList<>(parse(args).collect(Collectors.toList()));
+        return buildRaw(ArgumentView.of(args), lenient);
+    }
+
+    public Parameters buildRaw(ArgumentView args, boolean lenient) throws CommandException
+    {
+        return buildRaw(args, lenient, null, false);
+    }
+
+    protected Parameters buildRaw(ArgumentView args, boolean lenient, @Nullable Parameters previous, boolean incremental) throws CommandException
+    {
+        tokens = ArgumentTokens.tokenize(args, previous != null ? previous.tokens : null);
+
+        int capacity = Math.max(tokens.size(), 4);
+        flagCounts = new int[names.size()];
+        values = new int[names.size()][];
+        valueCounts = new int[names.size()];
+        valueIds = new int[capacity];
+        valueTokens = new int[capacity];
+        valueStarts = new int[capacity];
+        valueEnds = new int[capacity];
+        valueStrings = new String[capacity];
 
-        order.add(null);
+        if (incremental)
+        {
+            flagIds = new int[capacity];
+            checkpointValues = new int[tokens.size() + 1];
+            checkpointFlags = new int[tokens.size() + 1];
+            checkpointUntil = new int[tokens.size() + 1];
+            checkpointNames = new int[tokens.size() + 1];
+        }
 
         String curName = null;
+        int first = 0;
+        if (previous != null && tokens.reused() > 0 && tokens.reused() < previous.checkpoints)
+            curName = resume(previous, first = tokens.reused());
+
         boolean rawInterpreted = true;
-        for (int p = 0; p < raw.size(); p++)
+        for (int p = first; p < tokens.size(); p++)
         {
-            Pair<String, String> pair = raw.get(p);
-            String argRaw = pair.getLeft();
-            String arg = pair.getRight();
+            if (incremental && rawInterpreted)
+                checkpoint(p, curName);
 
             if (!interpretes() && rawInterpreted)
             {
-                List<Pair<String, String>> rest = raw.subList(p, raw.size());
-                String restString = rest.stream().map(Pair::getLeft).reduce(NaP::join).orElse("");
-                rest.clear();
-                // From CommandHandler limit -1, so we keep empty params
-                Arrays.stream(restString.split(" ", -1)).map(s -> Pair.of(s, s)).forEach(raw::add);
+                tokens = tokens.uninterpreted(p);
                 rawInterpreted = false;
                 p--; // Do this again but not interpreting
                 continue;
             }
 
             // Test argRaw for params since we don't want --name in "--split \"--name\"" to be a param
-            if (interpretes() && hasLongPrefix(argRaw))
+            if (interpretes() && tokens.rawStartsWith(p, LONG_FLAG_PREFIX))
             {
-                flags.add(curName = root(argRaw.substring(LONG_FLAG_PREFIX.length()).trim()));
+                addFlag(curName = root(tokens.raw(p).substring(LONG_FLAG_PREFIX.length()).trim()));
                 if (!lenient) testAdd(curName);
                 if (declaredFlags.contains(curName)) curName = null;
             }
-            else if (interpretes() && hasShortPrefix(argRaw))
+            else if (interpretes() && tokens.rawStartsWith(p, SHORT_FLAG_PREFIX) && hasShortPrefix(tokens.raw(p)))
             {
-                List<String> curFlags = argRaw.substring(SHORT_FLAG_PREFIX.length()).trim().chars().mapToObj(c -> String.valueOf((char) c)).collect(Collectors.toList());
+                String input = tokens.input();
+                int start = tokens.rawStart(p) + SHORT_FLAG_PREFIX.length(), end = tokens.rawEnd(p);
+                while (start < end && input.charAt(start) <= ' ') start++;
+                while (end > start && input.charAt(end - 1) <= ' ') end--;
 
-                for (int i = 0; i < curFlags.size(); i++)
+                for (int i = start; i < end; i++)
                 {
-                    flags.add(curName = root(curFlags.get(i)));
+                    char c = input.charAt(i);
+                    addFlag(curName = root(c < SHORT_NAMES.length ? SHORT_NAMES[c] : String.valueOf(c)));
                     if (!lenient) testAdd(curName);
                     if (declaredFlags.contains(curName))
                         curName = null;
-                    else if (curFlags.size() > i + 1)
+                    else if (end > i + 1)
                     {
                         // Direct input, e.g. -fusers/foo/file.png
-                        String rest = String.join("", curFlags.subList(i + 1, curFlags.size()));
-                        order.add(curName);
-                        params.put(curName, rest);
-                        rawParams.put(curName, argRaw);
+                        addValue(curName, p, i + 1, end);
                         curName = null;
                     }
                 }
@@ -245,57 +324,242 @@ public class Parameters
 
                 if (until > 0 && curName == null) until--;
 
-                order.add(curName);
-
-                params.put(curName, arg);
-                rawParams.put(curName, argRaw);
+                addValue(curName, p, -1, -1);
 
                 curName = null;
             }
         }
 
+        if (incremental && rawInterpreted)
+            checkpoint(tokens.size(), curName);
+
         return this;
     }
 
+    protected void checkpoint(int token, String curName)
+    {
+        checkpointValues[token] = valueCount;
+        checkpointFlags[token] = flagCount;
+        checkpointUntil[token] = until;
+        checkpointNames[token] = intern(curName);
+        checkpoints = token + 1;
+    }
+
+    /**
+     * Takes over everything the previous result had built before the given token.
+     *
+     * @return The name that was being read at the token.
+     */
+    protected String resume(Parameters previous, int token)
+    {
+        ids = previous.ids;
+        names = previous.names;
+        sharedIds = true;
+
+        flagCounts = new int[names.size()];
+        values = new int[names.size()][];
+        valueCounts = new int[names.size()];
+
+        until = previous.checkpointUntil[token];
+
+        System.arraycopy(previous.checkpointValues, 0, checkpointValues, 0, token);
+        System.arraycopy(previous.checkpointFlags, 0, checkpointFlags, 0, token);
+        System.arraycopy(previous.checkpointUntil, 0, checkpointUntil, 0, token);
+        System.arraycopy(previous.checkpointNames, 0, checkpointNames, 0, token);
+
+        for (int i = 0; i < previous.checkpointFlags[token]; i++)
+            addFlag(previous.flagIds[i]);
+
+        for (int i = 0; i < previous.checkpointValues[token]; i++)
+        {
+            addValue(previous.valueIds[i], previous.valueTokens[i], previous.valueStarts[i], previous.valueEnds[i]);
+            valueStrings[i] = previous.valueStrings[i];
+        }
+
+        return names.get(previous.checkpointNames[token]);
+    }
+
+    protected int id(String name)
+    {
+        return name == null ? 0 : ids.get(name);
+    }
+
+    protected int intern(String name)
+    {
+        int id = id(name);
+        if (id >= 0)
+            return id;
+
+        if (sharedIds)
+        {
+            // Copy on write, the schema's ids are shared
+            TObjectIntMap<String> shared = ids;
+            ids = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+            ids.putAll(shared);
+            names = new ArrayList<>(names);
+            sharedIds = false;
+        }
+
+        ids.put(name, id = names.size());
+        names.add(name);
+
+        if (id >= flagCounts.length)
+        {
+            int capacity = Math.max(flagCounts.length * 2, 4);
+            flagCounts = Arrays.copyOf(flagCounts, capacity);
+            values = Arrays.copyOf(values, capacity);
+            valueCounts = Arrays.copyOf(valueCounts, capacity);
+        }
+
+        return id;
+    }
+
+    protected void addFlag(String name)
+    {
+        addFlag(intern(name));
+    }
+
+    protected void addFlag(int id)
+    {
+        flagCounts[id]++;
+
+        if (flagIds != null)
+        {
+            if (flagCount == flagIds.length)
+                flagIds = Arrays.copyOf(flagIds, flagCount * 2);
+            flagIds[flagCount++] = id;
+        }
+    }
+
+    protected void addValue(String name, int token, int start, int end)
+    {
+        addValue(intern(name), token, start, end);
+    }
+
+    protected void addValue(int id, int token, int start, int end)
+    {
+        if (valueCount == valueIds.length)
+        {
+            int capacity = valueCount * 2;
+            valueIds = Arrays.copyOf(valueIds, capacity);
+            valueTokens = Arrays.copyOf(valueTokens, capacity);
+            valueStarts = Arrays.copyOf(valueStarts, capacity);
+            valueEnds = Arrays.copyOf(valueEnds, capacity);
+            valueStrings = Arrays.copyOf(valueStrings, capacity);
+        }
+
+        int[] named = values[id];
+        if (named == null)
+            values[id] = named = new int[4];
+        else if (valueCounts[id] == named.length)
+            values[id] = named = Arrays.copyOf(named, named.length * 2);
+        named[valueCounts[id]++] = valueCount;
+
+        valueIds[valueCount] = id;
+        valueTokens[valueCount] = token;
+        valueStarts[valueCount] = start;
+        valueEnds[valueCount] = end;
+        valueCount++;
+    }
+
+    protected int count(String name)
+    {
+        int id = id(name);
+        return id >= 0 && id < valueCounts.length ? valueCounts[id] : 0;
+    }
+
+    protected String value(int value)
+    {
+        String string = valueStrings[value];
+        if (string == null)
+        {
+            valueStrings[value] = string = valueStarts[value] < 0
+                    ? tokens.parsed(valueTokens[value])
+                    : tokens.input().substring(valueStarts[value], valueEnds[value]);
+        }
+        return string;
+    }
+
     protected void testAdd(String name) throws CommandException
     {
         if (!restrictFlags.containsKey(name))
             throw ParameterUnknownException.create(name);
 
         int restrict = restrictFlags.get(name);
-        if (!declaredFlags.contains(name) && (restrict >= 0 && params.get(name).size() >= restrict))
+        if (!declaredFlags.contains(name) && (restrict >= 0 && count(name) >= restrict))
             throw ParameterTooManyArgumentsException.create(name);
     }
 
     public void requireBuilt() throws IllegalStateException
     {
-        if (raw == null)
+        if (tokens == null)
             throw new IllegalStateException();
     }
 
     public void requireUnbuilt() throws IllegalStateException
     {
-        if (raw != null)
+        if (tokens != null)
             throw new IllegalStateException();
     }
 
-    public Parameters alias(String parent, String... aliases)
+    public void requireDeclarable() throws IllegalStateException
     {
         requireUnbuilt();
+        if (schema != null)
+            throw new IllegalStateException();
+    }
+
+    /**
+     * Compiles the declarations made so far into an immutable schema, to build any number of parameters from.
+     */
+    public ParameterSchema schema()
+    {
+        requireUnbuilt();
+        if (schema != null)
+            return schema;
+
+        Map<String, String> resolved = new HashMap<>();
+        for (String name : alias.keySet())
+            resolved.put(name, root(name));
+
+        TObjectIntMap<String> restrict = new TObjectIntHashMap<>();
+        restrict.putAll(restrictFlags);
+
+        // Intern all known names ahead of time
+        TObjectIntMap<String> ids = new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
+        ids.putAll(this.ids);
+        List<String> names = new ArrayList<>(this.names);
+        for (Object name : restrictFlags.keys())
+            if (name != null && !ids.containsKey(name))
+            {
+                ids.put((String) name, names.size());
+                names.add((String) name);
+            }
+        for (String name : declaredFlags)
+            if (!ids.containsKey(name))
+            {
+                ids.put(name, names.size());
+                names.add(name);
+            }
+
+        return new ParameterSchema(restrict, Collections.unmodifiableSet(new HashSet<>(declaredFlags)),
+                Collections.unmodifiableMap(resolved), until, ids, Collections.unmodifiableList(names));
+    }
+
+    public Parameters alias(String parent, String... aliases)
+    {
+        requireDeclarable();
         parent = root(parent);
 
         for (String alias : aliases)
             this.alias.put(alias, parent);
 
-        if (flags.removeAll(Arrays.asList(aliases)))
-            flags.add(parent);
-
         return this;
     }
 
     public Parameters flag(String flag, String... aliases)
     {
-        requireUnbuilt();
+        requireDeclarable();
         declaredFlags.add(root(flag));
         alias(flag, aliases);
         return this;
@@ -319,12 +583,14 @@ public class Parameters
      */
     public Parameters until(int until)
     {
+        requireDeclarable();
         this.until = until;
         return this;
     }
 
     public Parameters restrict(TObjectIntMap<String> flags)
     {
+        requireDeclarable();
         restrictFlags.putAll(flags);
         return this;
     }
@@ -339,19 +605,22 @@ public class Parameters
 
     public String lastName()
     {
-        return Iterables.getLast(order);
+        requireBuilt();
+        return valueCount > 0 ? names.get(valueIds[valueCount - 1]) : null;
     }
 
     public String last()
     {
         requireBuilt();
-        return Iterables.getLast(raw).getRight();
+        if (tokens.size() == 0) throw new NoSuchElementException();
+        return tokens.parsed(tokens.size() - 1);
     }
 
     public String lastRaw()
     {
         requireBuilt();
-        return Iterables.getLast(raw).getLeft();
+        if (tokens.size() == 0) throw new NoSuchElementException();
+        return tokens.raw(tokens.size() - 1);
     }
 
     public String[] lastAsArray()
@@ -372,46 +641,159 @@ public class Parameters
     public Map<String, Parameter> entries()
     {
         requireBuilt();
-        return flags.stream().collect(Collectors.toMap(k -> k,
-                k -> new Parameter<String>(0, k, params.get(k), null)));
+        Map<String, Parameter> entries = new HashMap<>();
+        for (int id = 0; id < names.size(); id++)
+        {
+            if (flagCounts.length > id && flagCounts[id] > 0)
+                entries.put(names.get(id), new Parameter<String>(0, names.get(id), new Values(id, false), null));
+        }
+        return entries;
     }
 
     public boolean has(@Nonnull String flag)
     {
         requireBuilt();
-        return flags.contains(root(flag));
+        int id = id(root(flag));
+        return id >= 0 && id < flagCounts.length && flagCounts[id] > 0;
+    }
+
+    public boolean isBuiltFrom(ParameterSchema schema)
+    {
+        return this.schema == schema;
+    }
+
+    /**
+     * How often the parameter was given as a flag, by its id in the schema these were built from.
+     * Like {@link #has(String)}, but without looking up the name.
+     */
+    public int flagCount(int id)
+    {
+        requireBuilt();
+        return id >= 0 && id < flagCounts.length ? flagCounts[id] : 0;
+    }
+
+    /**
+     * How many values the parameter got, by its id in the schema these were built from.
+     */
+    public int valueCount(int id)
+    {
+        requireBuilt();
+        return id >= 0 && id < valueCounts.length ? valueCounts[id] : 0;
     }
 
     public Parameter<String> get(int idx)
     {
         requireBuilt();
-        return new Parameter<String>(0, null, params.get(null), null).move(idx);
+        return new Parameter<String>(0, null, new Values(0, false), null).move(idx);
     }
 
     public Parameter<String> get(@Nonnull String name)
     {
         requireBuilt();
         name = root(name);
-        return new Parameter<>(!has(name) && !params.containsKey(name) ? -1 : 0, name, params.get(name), null);
+        return new Parameter<>(!has(name) && count(name) == 0 ? -1 : 0, name, new Values(id(name), false), null);
     }
 
     public List<Pair<String, String>> raw()
     {
         requireBuilt();
-        return Collections.unmodifiableList(raw);
+        ArgumentTokens tokens = this.tokens;
+        return new AbstractList<Pair<String, String>>()
+        {
+            @Override
+            public Pair<String, String> get(int index)
+            {
+                if (index < 0 || index >= tokens.size()) throw new IndexOutOfBoundsException();
+                return Pair.of(tokens.raw(index), tokens.parsed(index));
+            }
+
+            @Override
+            public int size()
+            {
+                return tokens.size();
+            }
+        };
     }
 
     public Parameter<String> raw(int idx)
     {
         requireBuilt();
-        return new Parameter<String>(0, null, rawParams.get(null), null).move(idx);
+        return new Parameter<String>(0, null, new Values(0, true), null).move(idx);
     }
 
     public Parameter<String> raw(@Nonnull String name)
     {
         requireBuilt();
         name = root(name);
-        return new Parameter<>(!has(name) && !rawParams.containsKey(name) ? -1 : 0, name, params.get(name), null);
+        return new Parameter<>(!has(name) && count(name) == 0 ? -1 : 0, name, new Values(id(name), false), null);
+    }
+
+    /**
+     * The values of one parameter id, materialized as strings only when asked for.
+     */
+    protected class Values extends AbstractList<String> implements RandomAccess
+    {
+        protected final int id;
+        protected final boolean raw;
+        protected final int offset;
+
+        public Values(int id, boolean raw)
+        {
+            this(id, raw, 0);
+        }
+
+        public Values(int id, boolean raw, int offset)
+        {
+            this.id = id;
+            this.raw = raw;
+            this.offset = offset;
+        }
+
+        @Override
+        public String get(int index)
+        {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException();
+            int value = values[id][offset + index];
+            return raw ? tokens.raw(valueTokens[value]) : value(value);
+        }
+
+        @Override
+        public int size()
+        {
+            return Math.max((id >= 0 && id < valueCounts.length ? valueCounts[id] : 0) - offset, 0);
+        }
+
+        @Nonnull
+        @Override
+        public List<String> subList(int fromIndex, int toIndex)
+        {
+            // Moved parameters keep reading from the tokens
+            if (toIndex == size() && fromIndex >= 0 && fromIndex <= toIndex)
+                return new Values(id, raw, offset + fromIndex);
+            return super.subList(fromIndex, toIndex);
+        }
+
+        public String input()
+        {
+            return tokens.input();
+        }
+
+        /**
+         * Where the value starts in the {@link #input()}, or -1 if it isn't just a span of it.
+         */
+        public int start(int index)
+        {
+            int value = values[id][offset + index];
+            return raw ? tokens.rawStart(valueTokens[value])
+                    : valueStarts[value] >= 0 ? valueStarts[value] : tokens.valueStart(valueTokens[value]);
+        }
+
+        public int end(int index)
+        {
+            int value = values[id][offset + index];
+            return raw ? tokens.rawEnd(valueTokens[value])
+                    : valueStarts[value] >= 0 ? valueEnds[value] : tokens.valueEnd(valueTokens[value]);
+        }
     }
 
     public static class ParameterUnknownException extends CommandException
@@ -0,0 +1,76 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters;
+
+import ivorius.mcopts.MCOpts;
+import net.minecraft.command.CommandException;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * What {@link IntParameter}, {@link LongParameter} and {@link DoubleParameter} share. They keep the string parameter
+ * and evaluate it with a primitive evaluation, which is only boxed for the {@link Parameter} methods.
+ * <p>
+ * Evaluations get present arguments, and missing ones only after an orElse handles them.
+ */
+public abstract class PrimitiveParameter<T> extends Parameter<T>
+{
+    protected final Parameter<String> string;
+    protected final boolean handlesMissing;
+
+    protected volatile boolean evaluated;
+
+    protected PrimitiveParameter(Parameter<String> string, boolean handlesMissing, Function<Result<String>, T> boxed)
+    {
+        super(string.pipeline.then(stage(boxed, handlesMissing)), string.moved, string.name, string.params);
+        this.string = string;
+        this.handlesMissing = handlesMissing;
+    }
+
+    protected static Stage stage(Function<Result<String>, ?> evaluation, boolean handlesMissing)
+    {
+        return s ->
+        {
+            if (!isEvaluated(s, handlesMissing)) return s;
+
+            try
+            {
+                //noinspection unchecked
+                return Result.of(evaluation.apply((Result<String>) s));
+            }
+            catch (CommandException e)
+            {
+                return Result.error(e);
+            }
+        };
+    }
+
+    protected static boolean isEvaluated(Result<?> s, boolean handlesMissing)
+    {
+        return s.isPresent() ? s.value != null : handlesMissing && s.isMissing();
+    }
+
+    /**
+     * The argument for the primitive evaluation.
+     *
+     * @throws CommandException if it can't be evaluated.
+     */
+    protected Result<String> argument() throws CommandException
+    {
+        Result<String> s = string.evaluate();
+        if (!isEvaluated(s, handlesMissing))
+        {
+            s.get(); // Throws if the argument is missing or failed
+            throw MCOpts.translations.commandException("commands.parameters.invalid.generic", name(0));
+        }
+        return s;
+    }
+
+    protected <O> Parameter<O> toObj(Function<Result<String>, O> fun)
+    {
+        return new Parameter<>(string.pipeline.then(stage(fun, handlesMissing)), moved, name, params);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Runs completions on a bounded pool of threads, giving up on them after a deadline.
+ * When a sender asks again before the previous completion is done, the previous one is cancelled.
+ */
+public class AsyncCompletions
+{
+    protected static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    protected final ThreadPoolExecutor executor;
+    protected final ScheduledExecutorService timer;
+    protected final long timeout;
+
+    protected final Map<ICommandSender, CompletableFuture<List<String>>> pending = Collections.synchronizedMap(new WeakHashMap<>());
+    // Counts each sender's requests, to tell whether completions are still the latest
+    protected final Map<ICommandSender, Integer> generations = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param threads The number of threads to complete on.
+     * @param queue   How many completions may wait for a thread before new ones are rejected.
+     * @param timeout Milliseconds after which a completion is given up.
+     */
+    public AsyncCompletions(int threads, int queue, long timeout)
+    {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), AsyncCompletions::newThread);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timer = Executors.newSingleThreadScheduledExecutor(AsyncCompletions::newThread);
+        this.timeout = timeout;
+    }
+
+    protected static Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, "MCOpts Completion #" + THREAD_ID.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Completes the args, from the server thread.
+     * The future fails with a {@link TimeoutException} after the deadline, and is cancelled by the sender's next request.
+     */
+    public CompletableFuture<List<String>> get(Expect expect, MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos pos)
+    {
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+
+        generations.merge(sender, 1, Integer::sum);
+        CompletableFuture<List<String>> previous = pending.put(sender, result);
+        if (previous != null)
+            previous.cancel(false);
+
+        try
+        {
+            // Requests that were replaced while waiting for a thread aren't run at all
+            expect.getAsync(server, sender, args, pos, command ->
+            {
+                if (!result.isDone())
+                    executor.execute(() ->
+                    {
+                        if (!result.isDone()) command.run();
+                    });
+            }).whenComplete((completions, throwable) ->
+            {
+                if (throwable != null)
+                    result.completeExceptionally(throwable);
+                else
+                    result.complete(completions);
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            result.completeExceptionally(e);
+        }
+
+        if (!result.isDone())
+        {
+            ScheduledFuture<?> deadline = timer.schedule(() -> result.completeExceptionally(new TimeoutException()), timeout, TimeUnit.MILLISECONDS);
+            result.whenComplete((completions, throwable) -> deadline.cancel(false));
+        }
+
+        result.whenComplete((completions, throwable) -> pending.remove(sender, result));
+        return result;
+    }
+
+    /**
+     * Completes the args, and hands the completions to the consumer on the server thread, unless they're stale by then.
+     */
+    public void get(Expect expect, MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos pos, Consumer<List<String>> consumer)
+    {
+        CompletableFuture<List<String>> future = get(expect, server, sender, args, pos);
+        Integer generation = generations.get(sender);
+        future.thenAccept(completions -> server.addScheduledTask(() ->
+        {
+            if (generation.equals(generations.get(sender)))
+                consumer.accept(completions);
+        }));
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+}
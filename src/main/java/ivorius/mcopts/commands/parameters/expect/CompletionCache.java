@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import net.minecraft.command.ICommandSender;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Keeps the most recently asked for completions, for completers that only depend on the args
+ * (see {@link Expect.Completer#isCacheable()}). Many senders complete the same popular commands the same way.
+ *
+ * @see ivorius.mcopts.commands.CommandExpecting#cacheCompletions(CompletionCache)
+ */
+public class CompletionCache
+{
+    public static final int MAX_PERMISSION_LEVEL = 4;
+
+    protected final Map<Key, List<String>> entries;
+
+    protected final AtomicLong hits = new AtomicLong();
+    protected final AtomicLong misses = new AtomicLong();
+
+    public CompletionCache(int capacity)
+    {
+        if (capacity <= 0) throw new IllegalArgumentException();
+        entries = new LinkedHashMap<Key, List<String>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The highest permission level the sender has for the command, or -1.
+     */
+    public static int permissionLevel(ICommandSender sender, String command)
+    {
+        for (int level = MAX_PERMISSION_LEVEL; level >= 0; level--)
+            if (sender.canUseCommand(level, command))
+                return level;
+        return -1;
+    }
+
+    /**
+     * A copy of the cached completions, or null if there are none.
+     */
+    @Nullable
+    public List<String> get(Key key)
+    {
+        List<String> completions;
+        synchronized (entries)
+        {
+            completions = entries.get(key);
+        }
+
+        (completions != null ? hits : misses).incrementAndGet();
+        return completions != null ? new ArrayList<>(completions) : null;
+    }
+
+    /**
+     * @param key The key the completions were looked up with. Registries snapshot while completing count towards it.
+     */
+    public void put(Key key, List<String> completions)
+    {
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(completions));
+        key = key.current();
+        synchronized (entries)
+        {
+            entries.put(key, copy);
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    public long hits()
+    {
+        return hits.get();
+    }
+
+    public long misses()
+    {
+        return misses.get();
+    }
+
+    public static class Key
+    {
+        protected final Expect expect;
+        protected final String path;
+        protected final int permissionLevel;
+        protected final String args;
+        // Registry completions change when registries are snapshot again
+        protected final int registries;
+        protected final int hash;
+
+        /**
+         * @param path            The args a {@link ivorius.mcopts.commands.CommandSplit} consumed to get to the command.
+         * @param permissionLevel See {@link #permissionLevel(ICommandSender, String)}.
+         */
+        public Key(Expect expect, String path, int permissionLevel, String[] args)
+        {
+            this.expect = expect;
+            this.path = path;
+            this.permissionLevel = permissionLevel;
+            // Args from elsewhere than the chat may contain spaces, but not control characters
+            this.args = String.join("\0", args);
+            registries = RegistryCompletionIndex.generation();
+            hash = hash();
+        }
+
+        protected Key(Key key, int registries)
+        {
+            expect = key.expect;
+            path = key.path;
+            permissionLevel = key.permissionLevel;
+            args = key.args;
+            this.registries = registries;
+            hash = hash();
+        }
+
+        protected int hash()
+        {
+            return Objects.hash(System.identityHashCode(expect), path, permissionLevel, args, registries);
+        }
+
+        /**
+         * The key for the registries as they are now.
+         */
+        protected Key current()
+        {
+            int registries = RegistryCompletionIndex.generation();
+            return registries == this.registries ? this : new Key(this, registries);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return expect == key.expect && permissionLevel == key.permissionLevel && registries == key.registries
+                    && path.equals(key.path) && args.equals(key.args);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import ivorius.mcopts.commands.parameters.Parameters;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Completes one line as it is being typed, e.g. for one sender.
+ * Every request only re-parses the arguments from where they differ from the previous request.
+ */
+public class CompletionSession
+{
+    protected final Expect expect;
+
+    protected Parameters parameters;
+
+    public CompletionSession(Expect expect)
+    {
+        this.expect = expect;
+    }
+
+    public Expect expect()
+    {
+        return expect;
+    }
+
+    public synchronized Parameters parameters(String[] args)
+    {
+        return parameters = expect.schema().buildLenient(args, parameters);
+    }
+
+    public List<String> get(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos pos)
+    {
+        return expect.get(server, sender, args, parameters(args), pos);
+    }
+
+    public synchronized void reset()
+    {
+        parameters = null;
+    }
+}
@@ -5,14 +5,16 @@
 
 package ivorius.mcopts.commands.parameters.expect;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
-import ivorius.mcopts.commands.parameters.NaP;
 import ivorius.mcopts.commands.parameters.Parameter;
+import ivorius.mcopts.commands.parameters.ParameterSchema;
 import ivorius.mcopts.commands.parameters.Parameters;
 import ivorius.mcopts.translation.Translations;
 import net.minecraft.command.CommandBase;
@@ -25,10 +27,14 @@ import org.apache.commons.lang3.tuple.Pair;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -50,6 +56,14 @@ public class Expect
 
     protected boolean or;
 
+    protected int limit = -1;
+
+    protected final List<Expect> inner = new ArrayList<>();
+    protected boolean frozen;
+    protected ParameterSchema schema;
+    protected NamedParameters named;
+    protected volatile Usage usage;
+
     public Expect()
     {
         getOrCreate(null);
@@ -57,13 +71,17 @@ public class Expect
 
     public static Stream<?> unwrap(Object arg)
     {
-        // Especially for or() calls
+        // Completers may combine others in pairs
         if (arg instanceof Pair)
             arg = Stream.concat(unwrap(((Pair) arg).getLeft()),
                     unwrap(((Pair) arg).getRight()));
         while (arg instanceof Optional)
             //noinspection unchecked
             arg = ((Optional) arg).orElse(Collections.emptyList());
+        if (arg instanceof RegistryCompletionIndex)
+            arg = ((RegistryCompletionIndex) arg).index();
+        if (arg instanceof PrefixIndex)
+            arg = ((PrefixIndex) arg).candidates();
         if (arg instanceof IntStream)
             arg = ((IntStream) arg).mapToObj(String::valueOf);
         if (arg instanceof Collection<?>)
@@ -73,6 +91,41 @@ public class Expect
         return Stream.of(arg);
     }
 
+    /**
+     * Streams can only be consumed once, so collect them for completions that may be asked for repeatedly.
+     */
+    protected static Object reusable(Object completion)
+    {
+        if (completion instanceof IntStream)
+            return ((IntStream) completion).mapToObj(String::valueOf).collect(Collectors.toList());
+        if (completion instanceof Stream<?>)
+            return ((Stream<?>) completion).collect(Collectors.toList());
+        return completion;
+    }
+
+    /**
+     * Whether the completions can't change any more, like collected streams. Other collections might be live views.
+     * Registry indices only change when they are snapshot again, which {@link CompletionCache} notices.
+     */
+    protected static boolean isFixed(Object completion)
+    {
+        return completion instanceof IntStream || completion instanceof Stream<?>
+                || completion instanceof ImmutableCollection<?> || completion instanceof String
+                || completion instanceof RegistryCompletionIndex;
+    }
+
+    /**
+     * Completions that can't change any more are matched through a {@link PrefixIndex}.
+     */
+    protected static Object indexed(Object completion)
+    {
+        if (completion instanceof IntStream || completion instanceof Stream<?>)
+            return new PrefixIndex((Collection<?>) reusable(completion));
+        if (completion instanceof ImmutableCollection<?>)
+            return new PrefixIndex((Collection<?>) completion);
+        return completion;
+    }
+
     public static Collection<String> toStrings(Object arg)
     {
         return unwrap(arg).map(Object::toString).collect(Collectors.toList());
@@ -80,6 +133,10 @@ public class Expect
 
     public static List<String> matching(String arg, Object completion)
     {
+        if (completion instanceof RegistryCompletionIndex)
+            return ((RegistryCompletionIndex) completion).matching(arg);
+        if (completion instanceof PrefixIndex)
+            return ((PrefixIndex) completion).matching(arg);
         return CommandBase.getListOfStringsMatchingLastWord(new String[]{arg}, unwrap(completion).collect(Collectors.toList()));
     }
 
@@ -88,6 +145,40 @@ public class Expect
         return CommandBase.getListOfStringsMatchingLastWord(new String[]{arg}, Arrays.asList(suggest));
     }
 
+    /**
+     * Makes this expect (and all inner ones) immutable, so it can be built once and shared between calls and threads.
+     */
+    public Expect freeze()
+    {
+        if (frozen)
+            return this;
+
+        frozen = true;
+        schema = declare(new Parameters()).schema();
+        named = new NamedParameters(schema);
+        inner.forEach(Expect::freeze);
+        return this;
+    }
+
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    public void requireUnfrozen() throws IllegalStateException
+    {
+        if (frozen)
+            throw new IllegalStateException();
+    }
+
+    /**
+     * The declarations as an immutable schema. Compiled only once if frozen.
+     */
+    public ParameterSchema schema()
+    {
+        return schema != null ? schema : declare(new Parameters()).schema();
+    }
+
     public Parameters declareLenient(Parameters parameters)
     {
         parameters.flags(flags);
@@ -126,6 +217,7 @@ public class Expect
 
     public Expect named(@Nonnull String name, String... aliases)
     {
+        requireUnfrozen();
         Pair<String, Boolean> p = name(name);
 
         SuggestParameter param = getOrCreate(currentName = p.getKey());
@@ -157,6 +249,7 @@ public class Expect
 
     public Expect flag(@Nonnull String name, String... aliases)
     {
+        requireUnfrozen();
         flags.add(name);
         Collections.addAll(flags, aliases);
         return named(name, aliases);
@@ -164,12 +257,14 @@ public class Expect
 
     public Expect atOnce(int num)
     {
+        requireUnfrozen();
         currentCount = num;
         return this;
     }
 
     public Expect nextRaw(Completer completion)
     {
+        requireUnfrozen();
         SuggestParameter cur = getOrCreate(currentName);
 
         if (or)
@@ -191,7 +286,7 @@ public class Expect
 
     public Expect next(Completer completion)
     {
-        return nextRaw((server, sender, params, pos) -> matching(params.last(), completion.complete(server, sender, params, pos)));
+        return nextRaw(new MatchingCompleter(completion));
     }
 
     public Expect skip()
@@ -201,22 +296,22 @@ public class Expect
 
     public Expect anyRaw(Object... completion)
     {
-        return nextRaw((server, sender, params, pos) -> Stream.of(completion));
+        return nextRaw(new StaticCompleter(Arrays.asList(completion), true));
     }
 
     public Expect any(Object... completion)
     {
-        return nextRaw((server, sender, params, pos) -> matchingAny(params.last(), completion));
+        return next(new StaticCompleter(new PrefixIndex(Arrays.asList(completion)), true));
     }
 
     public Expect nextRaw(Object completion)
     {
-        return nextRaw((server, sender, params, pos) -> completion);
+        return nextRaw(new StaticCompleter(reusable(completion), isFixed(completion)));
     }
 
     public Expect next(Object completion)
     {
-        return nextRaw((server, sender, params, pos) -> matching(params.last(), completion));
+        return next(new StaticCompleter(indexed(completion), isFixed(completion)));
     }
 
     public Expect nextRaw(Function<Parameters, ?> completion)
@@ -226,7 +321,7 @@ public class Expect
 
     public Expect next(Function<Parameters, ?> completion)
     {
-        return nextRaw((server, sender, params, pos) -> matching(params.last(), completion.apply(params)));
+        return next((server, sender, params, pos) -> completion.apply(params));
     }
 
     public Expect then(Consumer<Expect> fun)
@@ -243,6 +338,7 @@ public class Expect
 
     public Expect repeat()
     {
+        requireUnfrozen();
         SuggestParameter cur = params.get(this.currentName);
         if (cur == null) throw new IllegalStateException();
         cur.repeat = true;
@@ -252,6 +348,7 @@ public class Expect
     public Expect splitInner(Consumer<Expect> consumer)
     {
         Expect inner = Parameters.expect().then(consumer);
+        this.inner.add(inner);
 
         nextRaw((server, sender, parameters, pos) ->
                 {
@@ -269,6 +366,8 @@ public class Expect
                             ;
                 }
         );
+        if (inner.params.values().stream().anyMatch(p -> !p.mainThread.isEmpty()))
+            mainThread();
 
         return inner;
     }
@@ -294,6 +393,7 @@ public class Expect
 
     public Expect or()
     {
+        requireUnfrozen();
         if (or) throw new IllegalStateException();
         or = true;
         return this;
@@ -304,19 +404,90 @@ public class Expect
         return params.size();
     }
 
+    /**
+     * Suggest at most this many completions, the best first: those starting with the argument, then those whose path
+     * starts with it, then those containing it.
+     *
+     * @see RankedCompletions
+     */
+    public Expect limit(int limit)
+    {
+        requireUnfrozen();
+        if (limit <= 0) throw new IllegalArgumentException();
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Marks the last completions as touching world state, so {@link #getAsync} never runs them off the server thread.
+     */
+    public Expect mainThread()
+    {
+        requireUnfrozen();
+        forLast((param, index) ->
+        {
+            param.mainThread.set(index);
+            if (param.completions.get(index) instanceof Alternatives)
+                ((Alternatives) param.completions.get(index)).parallel = false;
+        });
+        return this;
+    }
+
+    /**
+     * Completes the last completions' {@link #or()} alternatives in parallel, unless they are marked {@link #mainThread()}.
+     * Only for alternatives that don't touch world or server state, since they run on the common pool.
+     */
+    public Expect parallel()
+    {
+        requireUnfrozen();
+        forLast((param, index) ->
+        {
+            if (param.completions.get(index) instanceof Alternatives)
+                ((Alternatives) param.completions.get(index)).parallel = !param.mainThread.get(index);
+        });
+        return this;
+    }
+
+    /**
+     * Marks the last completions as depending only on the args, not on the sender or world,
+     * so a {@link CompletionCache} may keep them. Those of fixed objects, e.g. from {@link #any(Object...)}, are already.
+     */
+    public Expect cacheable()
+    {
+        requireUnfrozen();
+        forLast((param, index) -> param.cacheable.set(index));
+        return this;
+    }
+
+    protected void forLast(ObjIntConsumer<SuggestParameter> consumer)
+    {
+        Map<String, Integer> marked = new HashMap<>();
+        List<String> relevant = order.subList(order.size() - currentCount, order.size());
+        for (String name : Lists.reverse(relevant))
+        {
+            SuggestParameter param = params.get(name);
+            consumer.accept(param, param.completions.size() - 1 - (marked.merge(name, 1, Integer::sum) - 1));
+        }
+    }
+
     public Expect stopInterpreting()
     {
+        requireUnfrozen();
         until = params.get(null).completions.size();
         return this;
     }
 
     public List<String> get(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos pos)
     {
-        Parameters parameters = Parameters.ofLenient(args, this::declare);
+        return get(server, sender, args, schema().buildLenient(args), pos);
+    }
 
-        String lastName = parameters.lastName();
-        Parameter entered = lastName != null ? parameters.get(lastName) : parameters.get(0);
-        SuggestParameter param = this.params.get(lastName);
+    /**
+     * @param parameters The args, built from {@link #schema()}.
+     */
+    public List<String> get(MinecraftServer server, ICommandSender sender, String[] args, Parameters parameters, @Nullable BlockPos pos)
+    {
+        SuggestParameter param = completing(parameters);
 
         String currentArg = parameters.last();
         String currentArgRaw = parameters.lastRaw();
@@ -324,15 +495,10 @@ public class Expect
         boolean lastArgStartsQuote = args[args.length - 1].startsWith("\"") && parameters.interpretes();
         boolean lastArgQuoted = currentArgRaw.startsWith("\"") && parameters.interpretes();
 
-        boolean longFlag = Parameters.hasLongPrefix(currentArgRaw) && parameters.interpretes();
-        boolean shortFlag = Parameters.hasShortPrefix(currentArgRaw) && parameters.interpretes();
-
-        if (param != null && (entered.count() <= param.completions.size() || param.repeat)
-                // It notices we are entering a parameter so it won't be added to the parameters args anyway
-                && !(parameters.interpretes() && (longFlag || shortFlag)))
+        if (param != null)
         {
-            Completer completer = param.completions.get(Math.min(entered.count() - 1, param.completions.size() - 1));
-            return toStrings(completer.complete(server, sender, parameters, pos)).stream()
+            Completer completer = param.completions.get(param.index(entered(parameters)));
+            return complete(completer, server, sender, parameters, pos).stream()
                     // Filter those that match
                     .map(s ->
                     {
@@ -360,27 +526,103 @@ public class Expect
         if (!parameters.interpretes())
             return Collections.emptyList();
 
+        NamedParameters named = named();
+        BitSet remaining = named.remaining(parameters);
         List<String> suggest = new ArrayList<>();
-        suggest.addAll(remaining(currentArg, parameters, false));
-        suggest.addAll(remaining(currentArg, parameters, true));
-        return matching(currentArg, suggest);
+        named.prefixed(remaining, false, suggest);
+        named.prefixed(remaining, true, suggest);
+        return limit > 0 ? RankedCompletions.rank(currentArg, suggest, limit) : matching(currentArg, suggest);
+    }
+
+    /**
+     * Like {@link #get(MinecraftServer, ICommandSender, String[], BlockPos)}, but runs the completer on the executor,
+     * unless it was marked {@link #mainThread()}. In that case, or when completing flags, it's run right away, so call
+     * this from the server thread.
+     */
+    public CompletableFuture<List<String>> getAsync(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos pos, Executor executor)
+    {
+        Parameters parameters = schema().buildLenient(args);
+
+        SuggestParameter param = completing(parameters);
+        if (param == null || param.mainThread.get(param.index(entered(parameters))))
+            return CompletableFuture.completedFuture(get(server, sender, args, parameters, pos));
+
+        return CompletableFuture.supplyAsync(() -> get(server, sender, args, parameters, pos), executor);
+    }
+
+    /**
+     * Whether the completions for the args only depend on them, so they may be cached.
+     *
+     * @param parameters The args, built from {@link #schema()}.
+     */
+    public boolean isCacheable(Parameters parameters)
+    {
+        SuggestParameter param = completing(parameters);
+        if (param == null)
+            return true;
+
+        int index = param.index(entered(parameters));
+        return param.cacheable.get(index) || param.completions.get(index).isCacheable();
+    }
+
+    protected static Parameter entered(Parameters parameters)
+    {
+        String lastName = parameters.lastName();
+        return lastName != null ? parameters.get(lastName) : parameters.get(0);
+    }
+
+    /**
+     * The parameter whose completions are asked for, or null if parameter names are.
+     */
+    @Nullable
+    protected SuggestParameter completing(Parameters parameters)
+    {
+        SuggestParameter param = this.params.get(parameters.lastName());
+
+        String currentArgRaw = parameters.lastRaw();
+        boolean longFlag = Parameters.hasLongPrefix(currentArgRaw) && parameters.interpretes();
+        boolean shortFlag = Parameters.hasShortPrefix(currentArgRaw) && parameters.interpretes();
+
+        if (param != null && (entered(parameters).count() <= param.completions.size() || param.repeat)
+                // It notices we are entering a parameter so it won't be added to the parameters args anyway
+                && !(parameters.interpretes() && (longFlag || shortFlag)))
+            return param;
+
+        return null;
+    }
+
+    protected Collection<String> complete(Completer completer, MinecraftServer server, ICommandSender sender, Parameters parameters, @Nullable BlockPos pos)
+    {
+        if (limit <= 0)
+            return toStrings(completer.complete(server, sender, parameters, pos));
+
+        Completer source = completer instanceof MatchingCompleter ? ((MatchingCompleter) completer).source
+                : completer instanceof Alternatives ? ((Alternatives) completer).sources()
+                : null;
+        if (source != null)
+            return RankedCompletions.rank(parameters.last(), source.complete(server, sender, parameters, pos), limit);
+
+        return unwrap(completer.complete(server, sender, parameters, pos)).limit(limit).map(Object::toString).collect(Collectors.toList());
     }
 
     @Nonnull
     public Collection<String> remaining(String currentArg, Parameters parameters, boolean useShort)
     {
-        return toStrings(this.params.entrySet().stream()
-                .filter(e -> e.getKey() != null)
-                .filter(e -> !parameters.has(e.getKey()) // For flags
-                        || parameters.get(e.getKey()).count() < e.getValue().completions.size() || e.getValue().repeat)
-                .map(Map.Entry::getKey)
-                .filter(p -> shortParams.contains(p) == useShort)
-                .map(p -> Parameters.prefix(shortParams.contains(p)) + p)
-        );
+        NamedParameters named = named();
+        return named.prefixed(named.remaining(parameters), useShort, new ArrayList<>());
+    }
+
+    /**
+     * The named parameters' prefixed names and limits. Compiled only once if frozen.
+     */
+    protected NamedParameters named()
+    {
+        return named != null ? named : new NamedParameters(schema());
     }
 
     protected List<String> mapLastDescriptions(BiFunction<Integer, String, String> fun)
     {
+        requireUnfrozen();
         List<String> relevant = order.subList(order.size() - currentCount, order.size());
         int[] idx = new int[1];
         List<String> last = relevant.stream().map(s ->
@@ -415,6 +657,7 @@ public class Expect
         if (description.size() != currentCount)
             throw new IllegalArgumentException();
         mapLastDescriptions((i, s) -> preserveOptionality(description.get(i), s));
+        translateLast(false);
         return this;
     }
 
@@ -423,11 +666,24 @@ public class Expect
         return descriptionU(Arrays.asList(descriptions));
     }
 
+    /**
+     * Describes the last parameters by translation keys, which are only translated when the usage is rendered.
+     */
     public Expect description(String... keys)
     {
-        return descriptionU(Arrays.stream(keys)
-                .map(Translations::get)
-                .collect(Collectors.toList()));
+        descriptionU(keys);
+        translateLast(true);
+        return this;
+    }
+
+    protected void translateLast(boolean translate)
+    {
+        TObjectIntMap<String> seen = new TObjectIntHashMap<>();
+        for (String name : Lists.reverse(order.subList(order.size() - currentCount, order.size())))
+        {
+            SuggestParameter param = params.get(name);
+            param.translated.set(param.descriptions.size() - 1 - seen.adjustOrPutValue(name, 1, 0), translate);
+        }
     }
 
     public Expect required()
@@ -448,40 +704,269 @@ public class Expect
         return this;
     }
 
+    /**
+     * The parameters' descriptions, with their translations in the current language.
+     * Rendered only once per language if frozen.
+     */
     public String usage()
     {
-        return TextFormatting.RESET + Stream.concat(
-                params.get(null).usage(),
-                params.entrySet().stream()
-                        .filter(e -> e.getKey() != null)
-                        .filter(e -> e.getKey().equals(e.getValue().name))
-                        .flatMap(e -> flags.contains(e.getKey()) ? Stream.of(keyRepresentation(e.getKey())) : e.getValue().usage()
-                                .map(desc -> String.format("%s %s", keyRepresentation(e.getKey()), desc)))
-        ).reduce("", NaP::join);
+        if (!frozen)
+            return renderUsage();
+
+        long version = Translations.version();
+        Usage usage = this.usage;
+        if (usage == null || usage.version != version)
+            this.usage = usage = new Usage(version, renderUsage());
+        return usage.text;
+    }
+
+    protected String renderUsage()
+    {
+        StringBuilder builder = new StringBuilder().append(TextFormatting.RESET);
+        params.get(null).usage(builder, null);
+        params.forEach((key, param) ->
+        {
+            if (key == null || !key.equals(param.name))
+                return;
+
+            if (flags.contains(key))
+                keyRepresentation(builder.append(' '), key);
+            else
+                param.usage(builder, key);
+        });
+        return builder.toString();
     }
 
     protected String keyRepresentation(String key)
     {
-        List<String> aliases = Lists.newArrayList(this.aliases.get(key));
+        return keyRepresentation(new StringBuilder(), key).toString();
+    }
 
-        for (Iterator<String> iterator = aliases.iterator(); iterator.hasNext(); )
+    protected StringBuilder keyRepresentation(StringBuilder builder, String key)
+    {
+        builder.append(Parameters.prefix(shortParams.contains(key)));
+        int start = builder.length();
+        builder.append(key);
+
+        List<String> others = new ArrayList<>();
+        for (String alias : aliases.get(key))
         {
-            String alias = iterator.next();
-            if (key.contains(alias))
+            // Highlight aliases that are part of the key
+            int index = builder.indexOf(alias, start);
+            if (index < 0)
             {
-                key = key.replaceFirst(alias, String.format("%s%s%s", TextFormatting.AQUA, alias, TextFormatting.RESET));
-                iterator.remove();
+                others.add(alias);
+                continue;
             }
+
+            builder.insert(index + alias.length(), TextFormatting.RESET);
+            builder.insert(index, TextFormatting.AQUA);
         }
 
-        aliases.add(0, key);
+        for (String alias : others)
+            builder.append('|').append(alias);
+        return builder;
+    }
+
+    /**
+     * All names of the named parameters (including aliases), in a fixed order, with what is needed to tell
+     * which of them can still be given.
+     */
+    protected class NamedParameters
+    {
+        public final ParameterSchema schema;
+        public final String[] names;
+        public final String[] prefixed;
+        public final BitSet isShort = new BitSet();
+        // The ids of the names' roots in the schema
+        public final int[] ids;
+        // How many values each may have, or -1 if any number
+        public final int[] limits;
+
+        public NamedParameters(ParameterSchema schema)
+        {
+            this.schema = schema;
+
+            List<String> keys = params.keySet().stream().filter(Objects::nonNull).collect(Collectors.toList());
+            names = keys.toArray(new String[0]);
+            prefixed = new String[names.length];
+            ids = new int[names.length];
+            limits = new int[names.length];
+            for (int i = 0; i < names.length; i++)
+            {
+                SuggestParameter param = params.get(names[i]);
+                isShort.set(i, shortParams.contains(names[i]));
+                prefixed[i] = Parameters.prefix(isShort.get(i)) + names[i];
+                ids[i] = schema.id(schema.root(names[i]));
+                limits[i] = param.repeat ? -1 : param.completions.size();
+            }
+        }
+
+        /**
+         * The names that may still be given: Flags that weren't given yet and parameters that may take more values.
+         */
+        public BitSet remaining(Parameters parameters)
+        {
+            BitSet remaining = new BitSet(names.length);
+            boolean fast = parameters.isBuiltFrom(schema);
+            for (int i = 0; i < names.length; i++)
+            {
+                if (limits[i] < 0)
+                    remaining.set(i);
+                else if (fast)
+                    remaining.set(i, parameters.flagCount(ids[i]) == 0 || parameters.valueCount(ids[i]) < limits[i]);
+                else
+                    remaining.set(i, !parameters.has(names[i]) || parameters.get(names[i]).count() < limits[i]);
+            }
+            return remaining;
+        }
 
-        return Parameters.prefix(shortParams.contains(key)) + String.join("|", aliases);
+        public <C extends Collection<String>> C prefixed(BitSet remaining, boolean useShort, C collection)
+        {
+            for (int i = remaining.nextSetBit(0); i >= 0; i = remaining.nextSetBit(i + 1))
+                if (isShort.get(i) == useShort)
+                    collection.add(prefixed[i]);
+            return collection;
+        }
+    }
+
+    protected static class Usage
+    {
+        public final long version;
+        public final String text;
+
+        public Usage(long version, String text)
+        {
+            this.version = version;
+            this.text = text;
+        }
     }
 
     public interface Completer
     {
         Object complete(MinecraftServer server, ICommandSender sender, Parameters parameters, @Nullable BlockPos pos);
+
+        /**
+         * Whether the completions only depend on the parameters, not on the sender or world.
+         */
+        default boolean isCacheable()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Suggests the same completions for all args.
+     */
+    protected static class StaticCompleter implements Completer
+    {
+        public final Object completion;
+        public final boolean cacheable;
+
+        public StaticCompleter(Object completion, boolean cacheable)
+        {
+            this.completion = completion;
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public Object complete(MinecraftServer server, ICommandSender sender, Parameters parameters, @Nullable BlockPos pos)
+        {
+            return completion;
+        }
+
+        @Override
+        public boolean isCacheable()
+        {
+            return cacheable;
+        }
+    }
+
+    /**
+     * Suggests the source's completions that match the argument.
+     */
+    protected static class MatchingCompleter implements Completer
+    {
+        public final Completer source;
+
+        public MatchingCompleter(Completer source)
+        {
+            this.source = source;
+        }
+
+        @Override
+        public Object complete(MinecraftServer server, ICommandSender sender, Parameters parameters, @Nullable BlockPos pos)
+        {
+            return matching(parameters.last(), source.complete(server, sender, parameters, pos));
+        }
+
+        @Override
+        public boolean isCacheable()
+        {
+            return source.isCacheable();
+        }
+    }
+
+    /**
+     * The completers combined with {@link #or()}, completed one after another unless marked {@link #parallel()}.
+     * Their completions are kept in order.
+     */
+    protected static class Alternatives implements Completer
+    {
+        public final List<Completer> alternatives = new ArrayList<>();
+        public boolean parallel;
+
+        public Alternatives(Completer first)
+        {
+            alternatives.add(first);
+        }
+
+        @Override
+        public Object complete(MinecraftServer server, ICommandSender sender, Parameters parameters, @Nullable BlockPos pos)
+        {
+            if (!parallel)
+                return alternatives.stream().flatMap(c -> unwrap(c.complete(server, sender, parameters, pos)));
+
+            // The first one is completed on this thread while the others are running
+            List<CompletableFuture<List<?>>> others = new ArrayList<>(alternatives.size() - 1);
+            for (Completer completer : alternatives.subList(1, alternatives.size()))
+                others.add(CompletableFuture.supplyAsync(() -> unwrap(completer.complete(server, sender, parameters, pos)).collect(Collectors.toList())));
+
+            List<Object> completions = unwrap(alternatives.get(0).complete(server, sender, parameters, pos)).collect(Collectors.toList());
+            try
+            {
+                for (CompletableFuture<List<?>> other : others)
+                    completions.addAll(other.join());
+            }
+            catch (CompletionException e)
+            {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw e;
+            }
+            return completions;
+        }
+
+        @Override
+        public boolean isCacheable()
+        {
+            return alternatives.stream().allMatch(Completer::isCacheable);
+        }
+
+        /**
+         * The alternatives' sources if they all match theirs, so they can be matched (or ranked) together.
+         */
+        @Nullable
+        public Alternatives sources()
+        {
+            if (!alternatives.stream().allMatch(c -> c instanceof MatchingCompleter))
+                return null;
+
+            Alternatives sources = new Alternatives(((MatchingCompleter) alternatives.get(0)).source);
+            for (Completer completer : alternatives.subList(1, alternatives.size()))
+                sources.alternatives.add(((MatchingCompleter) completer).source);
+            sources.parallel = parallel;
+            return sources;
+        }
     }
 
     protected class SuggestParameter
@@ -489,6 +974,9 @@ public class Expect
         protected String name;
         protected final List<Completer> completions = new ArrayList<>();
         protected final List<String> descriptions = new ArrayList<>();
+        protected final BitSet mainThread = new BitSet();
+        protected final BitSet cacheable = new BitSet();
+        protected final BitSet translated = new BitSet();
         protected boolean repeat;
 
         public SuggestParameter(String name)
@@ -496,6 +984,11 @@ public class Expect
             this.name = name;
         }
 
+        public int index(Parameter entered)
+        {
+            return Math.min(entered.count() - 1, completions.size() - 1);
+        }
+
         public SuggestParameter next(Completer completion)
         {
             completions.add(completion);
@@ -505,19 +998,36 @@ public class Expect
 
         public SuggestParameter or(Completer completion)
         {
-            Completer prev = completions.remove(completions.size() - 1);
-            completions.add((server, sender, parameters, pos) ->
-                    Pair.of(prev.complete(server, sender, parameters, pos), completion.complete(server, sender, parameters, pos)));
+            int index = completions.size() - 1;
+            Completer prev = completions.get(index);
+            Alternatives alternatives = prev instanceof Alternatives ? (Alternatives) prev : new Alternatives(prev);
+            alternatives.alternatives.add(completion);
+            completions.set(index, alternatives);
             return this;
         }
 
-        public Stream<String> usage()
+        public String description(int index)
         {
-            return IntStream.range(0, descriptions.size())
-                    .mapToObj(i -> String.format("%s%s%s%s",
-                            TextFormatting.YELLOW, descriptions.get(i), TextFormatting.RESET,
-                            repeat && i == descriptions.size() - 1 ? "..." : ""
-                    ));
+            String description = descriptions.get(index);
+            return translated.get(index)
+                    ? preserveOptionality(Translations.get(stripOptionality(description)), description)
+                    : description;
+        }
+
+        /**
+         * Appends each description, preceded by the key if given.
+         */
+        public void usage(StringBuilder builder, @Nullable String key)
+        {
+            for (int i = 0; i < descriptions.size(); i++)
+            {
+                builder.append(' ');
+                if (key != null)
+                    keyRepresentation(builder, key).append(' ');
+                builder.append(TextFormatting.YELLOW).append(description(i)).append(TextFormatting.RESET);
+                if (repeat && i == descriptions.size() - 1)
+                    builder.append("...");
+            }
         }
     }
 }
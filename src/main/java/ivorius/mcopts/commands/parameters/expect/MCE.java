@@ -65,7 +65,7 @@ public class MCE
 
     public static void biome(Expect e)
     {
-        e.next(Biome.REGISTRY.getKeys()).description("commands.parameters.biome");
+        e.next(RegistryCompletionIndex.of(Biome.REGISTRY)).description("commands.parameters.biome");
     }
 
     public static void biomeType(Expect e)
@@ -75,17 +75,17 @@ public class MCE
 
     public static void dimension(Expect e)
     {
-        e.next(Arrays.stream(DimensionManager.getIDs())).description("commands.parameters.dimension");
+        e.next((server, sender, args, pos) -> Arrays.stream(DimensionManager.getIDs())).mainThread().description("commands.parameters.dimension");
     }
 
     public static void block(Expect e)
     {
-        e.next(Block.REGISTRY.getKeys()).description("commands.parameters.block");
+        e.next(RegistryCompletionIndex.of(Block.REGISTRY)).description("commands.parameters.block");
     }
 
     public static void item(Expect e)
     {
-        e.next(Item.REGISTRY.getKeys()).description("commands.parameters.item");
+        e.next(RegistryCompletionIndex.of(Item.REGISTRY)).description("commands.parameters.item");
     }
 
     public static void command(Expect e)
@@ -100,17 +100,17 @@ public class MCE
             Parameter<String> commandParameter = start.apply(params);
             Optional<ICommand> other = commandParameter.tryGet().map(server1.getCommandManager().getCommands()::get);
             return other.map(c -> c.getTabCompletions(server1, sender, commandParameter.move(1).to(NaP::varargs).get(), pos1)).orElse(Collections.emptyList());
-        }).descriptionU("args...");
+        }).mainThread().descriptionU("args...");
     }
 
     public static void entity(Expect e)
     {
-        e.next((server, sender, parameters, pos) -> Arrays.stream(server.getOnlinePlayerNames())).description("commands.parameters.entity");
+        e.next((server, sender, parameters, pos) -> Arrays.stream(server.getOnlinePlayerNames())).mainThread().description("commands.parameters.entity");
     }
 
     public static void player(Expect e)
     {
-        e.next((server, sender, parameters, pos) -> Arrays.stream(server.getOnlinePlayerNames())).description("commands.parameters.player");
+        e.next((server, sender, parameters, pos) -> Arrays.stream(server.getOnlinePlayerNames())).mainThread().description("commands.parameters.player");
     }
 
     public static void rotation(Expect e)
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.util.ResourceLocation;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Matches a fixed set of completions like {@link CommandBase#getListOfStringsMatchingLastWord(String[], Collection)},
+ * but through sorted keys instead of testing every candidate.
+ * Like vanilla, resource locations are matched by their path if nothing matches the full id.
+ * The keys are sorted on first use.
+ */
+public class PrefixIndex
+{
+    protected final Collection<?> candidates;
+
+    protected volatile Keys keys;
+
+    public PrefixIndex(Collection<?> candidates)
+    {
+        this.candidates = candidates;
+    }
+
+    /**
+     * Folds the string so that two strings are equal exactly when {@link String#regionMatches(boolean, int, String, int, int)}
+     * ignoring case considers them equal.
+     */
+    @Nonnull
+    public static String fold(String string)
+    {
+        char[] chars = string.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        return new String(chars);
+    }
+
+    public Collection<?> candidates()
+    {
+        return candidates;
+    }
+
+    @Nonnull
+    public List<String> matching(String prefix)
+    {
+        Keys keys = keys();
+
+        if (prefix.isEmpty())
+            return new ArrayList<>(Arrays.asList(keys.strings));
+
+        String folded = fold(prefix);
+        List<String> matching = keys.strings(keys.full, keys.fullOrder, folded);
+        return !matching.isEmpty() ? matching : keys.strings(keys.path, keys.pathOrder, folded);
+    }
+
+    protected Keys keys()
+    {
+        Keys keys = this.keys;
+        if (keys == null)
+            this.keys = keys = new Keys(candidates);
+        return keys;
+    }
+
+    protected static class Keys
+    {
+        // In the original order
+        public final String[] strings;
+
+        // Sorted folded keys, and the index of the candidate each belongs to
+        public final String[] full;
+        public final int[] fullOrder;
+        public final String[] path;
+        public final int[] pathOrder;
+
+        public Keys(Collection<?> candidates)
+        {
+            strings = new String[candidates.size()];
+            String[] full = new String[strings.length];
+            String[] path = new String[strings.length];
+
+            int i = 0, paths = 0;
+            for (Object candidate : candidates)
+            {
+                strings[i] = String.valueOf(candidate);
+                full[i] = fold(strings[i]);
+                if (candidate instanceof ResourceLocation)
+                {
+                    path[i] = fold(((ResourceLocation) candidate).getResourcePath());
+                    paths++;
+                }
+                i++;
+            }
+
+            this.fullOrder = sort(full, strings.length);
+            this.full = keys(full, fullOrder);
+            this.pathOrder = sort(path, paths);
+            this.path = keys(path, pathOrder);
+        }
+
+        protected static int[] sort(String[] keys, int count)
+        {
+            Integer[] order = new Integer[count];
+            for (int i = 0, j = 0; j < count; i++)
+                if (keys[i] != null) order[j++] = i;
+            Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++)
+                sorted[i] = order[i];
+            return sorted;
+        }
+
+        protected static String[] keys(String[] keys, int[] order)
+        {
+            String[] sorted = new String[order.length];
+            for (int i = 0; i < order.length; i++)
+                sorted[i] = keys[order[i]];
+            return sorted;
+        }
+
+        public List<String> strings(String[] keys, int[] order, String prefix)
+        {
+            int from = Arrays.binarySearch(keys, prefix);
+            if (from < 0) from = -from - 1;
+            else while (from > 0 && keys[from - 1].equals(prefix)) from--;
+
+            int to = from;
+            while (to < keys.length && keys[to].startsWith(prefix))
+                to++;
+
+            // Back to the original order
+            int[] matches = Arrays.copyOfRange(order, from, to);
+            Arrays.sort(matches);
+
+            List<String> strings = new ArrayList<>(matches.length);
+            for (int match : matches)
+                strings.add(this.strings[match]);
+            return strings;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import net.minecraft.util.ResourceLocation;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Picks the best few completions for an argument: first those starting with it, then those whose path
+ * (without namespace) starts with it, then those containing it. Within a rank, the original order is kept.
+ * Stops reading candidates as soon as the limit is filled with the best rank.
+ */
+public class RankedCompletions
+{
+    public static final int PREFIX = 0;
+    public static final int PATH_PREFIX = 1;
+    public static final int CONTAINS = 2;
+
+    protected final String folded;
+    protected final int limit;
+
+    // Bounded top-k, one bucket per rank
+    protected final List<List<String>> ranks = new ArrayList<>();
+    protected int size;
+
+    public RankedCompletions(String arg, int limit)
+    {
+        this.folded = PrefixIndex.fold(arg);
+        this.limit = limit;
+        for (int i = 0; i <= CONTAINS; i++)
+            ranks.add(new ArrayList<>());
+    }
+
+    @Nonnull
+    public static List<String> rank(String arg, Object completion, int limit)
+    {
+        if (completion instanceof RegistryCompletionIndex)
+            completion = ((RegistryCompletionIndex) completion).index();
+        if (completion instanceof PrefixIndex)
+        {
+            // The index finds the best rank directly, which may be enough
+            List<String> matching = ((PrefixIndex) completion).matching(arg);
+            if (matching.size() >= limit && PrefixIndex.fold(matching.get(0)).startsWith(PrefixIndex.fold(arg)))
+                return new ArrayList<>(matching.subList(0, limit));
+        }
+
+        RankedCompletions ranked = new RankedCompletions(arg, limit);
+        Iterator<?> iterator = Expect.unwrap(completion).iterator();
+        while (iterator.hasNext() && !ranked.isFull())
+            ranked.add(iterator.next());
+        return ranked.get();
+    }
+
+    public int rank(Object candidate)
+    {
+        String string = PrefixIndex.fold(String.valueOf(candidate));
+        if (string.startsWith(folded))
+            return PREFIX;
+
+        String path = candidate instanceof ResourceLocation ? PrefixIndex.fold(((ResourceLocation) candidate).getResourcePath())
+                : string.indexOf(':') >= 0 ? string.substring(string.indexOf(':') + 1) : null;
+        if (path != null && path.startsWith(folded))
+            return PATH_PREFIX;
+
+        return string.contains(folded) ? CONTAINS : -1;
+    }
+
+    public void add(Object candidate)
+    {
+        int rank = rank(candidate);
+        if (rank < 0)
+            return;
+
+        int better = 0;
+        for (int i = PREFIX; i <= rank; i++)
+            better += ranks.get(i).size();
+        if (better >= limit)
+            return;
+
+        ranks.get(rank).add(String.valueOf(candidate));
+
+        if (++size > limit)
+        {
+            // Drop the worst one, which can't make it any more
+            for (int i = CONTAINS; ; i--)
+            {
+                List<String> worse = ranks.get(i);
+                if (!worse.isEmpty())
+                {
+                    worse.remove(worse.size() - 1);
+                    size--;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the best rank alone fills the limit, so no more candidates can get in.
+     */
+    public boolean isFull()
+    {
+        return ranks.get(PREFIX).size() >= limit;
+    }
+
+    @Nonnull
+    public List<String> get()
+    {
+        List<String> result = new ArrayList<>(size);
+        ranks.forEach(result::addAll);
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.commands.parameters.expect;
+
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.registry.RegistryNamespaced;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * Completes the keys of a registry through a {@link PrefixIndex} over a sorted snapshot of them.
+ * The snapshot is taken again when the registry's size changes, or after {@link #invalidate()}, e.g. from a reload event.
+ * Get the shared index of a registry with {@link #of(RegistryNamespaced)}, and complete it with
+ * {@link Expect#next(Object)}.
+ */
+public class RegistryCompletionIndex
+{
+    protected static final Map<RegistryNamespaced<ResourceLocation, ?>, RegistryCompletionIndex> INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+    protected static final AtomicInteger GENERATION = new AtomicInteger();
+
+    protected final RegistryNamespaced<ResourceLocation, ?> registry;
+
+    protected volatile Snapshot snapshot;
+
+    public RegistryCompletionIndex(RegistryNamespaced<ResourceLocation, ?> registry)
+    {
+        this.registry = registry;
+    }
+
+    @Nonnull
+    public static RegistryCompletionIndex of(RegistryNamespaced<ResourceLocation, ?> registry)
+    {
+        return INDICES.computeIfAbsent(registry, RegistryCompletionIndex::new);
+    }
+
+    /**
+     * Snapshots all registries again on next use, e.g. after the registries were remapped.
+     */
+    public static void invalidateAll()
+    {
+        synchronized (INDICES)
+        {
+            INDICES.values().forEach(RegistryCompletionIndex::invalidate);
+        }
+    }
+
+    /**
+     * Counts up whenever any registry's snapshot is dropped or taken again, so cached completions can tell they're stale.
+     */
+    public static int generation()
+    {
+        return GENERATION.get();
+    }
+
+    public void invalidate()
+    {
+        snapshot = null;
+        GENERATION.incrementAndGet();
+    }
+
+    public RegistryNamespaced<ResourceLocation, ?> registry()
+    {
+        return registry;
+    }
+
+    /**
+     * All keys, sorted by namespace and then path.
+     */
+    @Nonnull
+    public List<ResourceLocation> keys()
+    {
+        return snapshot().keys;
+    }
+
+    /**
+     * The keys in the namespace, sorted by path.
+     */
+    @Nonnull
+    public List<ResourceLocation> keys(String namespace)
+    {
+        Snapshot snapshot = snapshot();
+        int[] range = snapshot.namespaces.get(namespace);
+        return range != null ? snapshot.keys.subList(range[0], range[1]) : Collections.emptyList();
+    }
+
+    @Nonnull
+    public Set<String> namespaces()
+    {
+        return snapshot().namespaces.keySet();
+    }
+
+    @Nonnull
+    public PrefixIndex index()
+    {
+        return snapshot().index;
+    }
+
+    @Nonnull
+    public List<String> matching(String prefix)
+    {
+        return index().matching(prefix);
+    }
+
+    protected Snapshot snapshot()
+    {
+        Snapshot snapshot = this.snapshot;
+        Set<ResourceLocation> keys = registry.getKeys();
+        if (snapshot == null || snapshot.keys.size() != keys.size())
+        {
+            this.snapshot = snapshot = new Snapshot(keys);
+            GENERATION.incrementAndGet();
+        }
+        return snapshot;
+    }
+
+    protected static class Snapshot
+    {
+        public final List<ResourceLocation> keys;
+        public final Map<String, int[]> namespaces = new HashMap<>();
+        public final PrefixIndex index;
+
+        public Snapshot(Collection<ResourceLocation> keys)
+        {
+            ResourceLocation[] sorted = keys.toArray(new ResourceLocation[0]);
+            Arrays.sort(sorted, Comparator.comparing(ResourceLocation::getResourceDomain).thenComparing(ResourceLocation::getResourcePath));
+            this.keys = Collections.unmodifiableList(Arrays.asList(sorted));
+
+            for (int from = 0, to; from < sorted.length; from = to)
+            {
+                String namespace = sorted[from].getResourceDomain();
+                for (to = from + 1; to < sorted.length && sorted[to].getResourceDomain().equals(namespace); to++) ;
+                namespaces.put(namespace, new int[]{from, to});
+            }
+
+            index = new PrefixIndex(this.keys);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.reflection;
+
+import ivorius.mcopts.MCOpts;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * A field, looked up once and accessed through method handles. Get them from {@link SafeReflector#field(Class, String)}
+ * so each field is only looked up once. If the field can't be found, that is logged once and the accessor
+ * stays unresolved: getters return their fallback, setters do nothing.
+ */
+public class FieldAccessor
+{
+    protected final Class<?> clazz;
+    protected final String name;
+
+    @Nullable
+    protected final Field field;
+    // (Object) -> Object, also for static fields, which ignore the object
+    @Nullable
+    protected final MethodHandle getter;
+    @Nullable
+    protected final MethodHandle intGetter;
+    // (Object, Object) -> void
+    @Nullable
+    protected final MethodHandle setter;
+
+    protected FieldAccessor(Class<?> clazz, String name, @Nullable Field field, @Nullable MethodHandle getter, @Nullable MethodHandle intGetter, @Nullable MethodHandle setter)
+    {
+        this.clazz = clazz;
+        this.name = name;
+        this.field = field;
+        this.getter = getter;
+        this.intGetter = intGetter;
+        this.setter = setter;
+    }
+
+    public static FieldAccessor resolve(Class<?> clazz, String name)
+    {
+        Field field;
+        MethodHandle getter;
+        try
+        {
+            field = ReflectionHelper.findField(clazz, name);
+            getter = MethodHandles.lookup().unreflectGetter(field);
+        }
+        catch (Exception e)
+        {
+            MCOpts.logger.error("Unable to resolve field " + clazz.getName() + "." + name, e);
+            return new FieldAccessor(clazz, name, null, null, null, null);
+        }
+
+        boolean isStatic = Modifier.isStatic(field.getModifiers());
+        if (isStatic)
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+        MethodHandle intGetter = field.getType() == int.class
+                ? getter.asType(MethodType.methodType(int.class, Object.class)) : null;
+        getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+
+        MethodHandle setter = null;
+        try
+        {
+            setter = MethodHandles.lookup().unreflectSetter(field);
+            if (isStatic)
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            setter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        catch (IllegalAccessException e)
+        {
+            // Static final, so it's read only
+        }
+
+        return new FieldAccessor(clazz, name, field, getter, intGetter, setter);
+    }
+
+    public boolean isResolved()
+    {
+        return field != null;
+    }
+
+    @Nullable
+    public Field field()
+    {
+        return field;
+    }
+
+    /**
+     * @throws RuntimeException if the field is unresolved.
+     */
+    public <T> T get(@Nullable Object object)
+    {
+        if (getter == null)
+            throw new RuntimeException("Unable to resolve: " + name);
+
+        try
+        {
+            //noinspection unchecked
+            return (T) getter.invokeExact(object);
+        }
+        catch (Throwable e)
+        {
+            throw new RuntimeException("Unable to get: " + name, e);
+        }
+    }
+
+    public <T> T get(@Nullable Object object, T fallback)
+    {
+        if (getter == null)
+            return fallback;
+
+        try
+        {
+            //noinspection unchecked
+            return (T) getter.invokeExact(object);
+        }
+        catch (Throwable e)
+        {
+            MCOpts.logger.error(e);
+        }
+
+        return fallback;
+    }
+
+    public int getInt(@Nullable Object object, int fallback)
+    {
+        if (intGetter == null)
+            return fallback;
+
+        try
+        {
+            return (int) intGetter.invokeExact(object);
+        }
+        catch (Throwable e)
+        {
+            MCOpts.logger.error(e);
+        }
+
+        return fallback;
+    }
+
+    /**
+     * @return Whether the value could be set.
+     */
+    public boolean set(@Nullable Object object, Object value)
+    {
+        if (setter == null)
+            return false;
+
+        try
+        {
+            setter.invokeExact(object, value);
+            return true;
+        }
+        catch (Throwable e)
+        {
+            MCOpts.logger.error(e);
+        }
+
+        return false;
+    }
+}
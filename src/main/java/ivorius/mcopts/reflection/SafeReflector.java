@@ -6,50 +6,47 @@
 package ivorius.mcopts.reflection;
 
 import ivorius.mcopts.MCOpts;
-import net.minecraftforge.fml.relauncher.ReflectionHelper;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by lukas on 08.06.17.
  */
 public class SafeReflector
 {
-    public static <T> T get(Class<?> clazz, String name, Object object)
+    protected static final Map<Pair<Class<?>, String>, FieldAccessor> fields = new ConcurrentHashMap<>();
+
+    /**
+     * The field's accessor, looked up only the first time it is asked for.
+     * Keep it in a static final field to have missing fields reported at startup.
+     */
+    public static FieldAccessor field(Class<?> clazz, String name)
     {
-        try
-        {
-            //noinspection unchecked
-            return (T) ReflectionHelper.findField(clazz, name).get(object);
-        }
-        catch (Exception e)
-        {
-            MCOpts.logger.error(e);
-        }
+        return fields.computeIfAbsent(Pair.of(clazz, name), key -> FieldAccessor.resolve(clazz, name));
+    }
 
-        throw new RuntimeException("Unable to resolve: " + name);
+    public static <T> T get(Class<?> clazz, String name, Object object)
+    {
+        return field(clazz, name).get(object);
     }
 
     public static <T> T get(Class<?> clazz, String name, Object object, T fallback)
     {
-        try
-        {
-            //noinspection unchecked
-            return (T) ReflectionHelper.findField(clazz, name).get(object);
-        }
-        catch (Exception e)
-        {
-            MCOpts.logger.error(e);
-        }
-
-        return fallback;
+        return field(clazz, name).get(object, fallback);
     }
 
     public static boolean of(Class<?> clazz, String name, FieldTask task)
     {
+        Field field = field(clazz, name).field();
+        if (field == null)
+            return false;
+
         try
         {
-            task.execute(ReflectionHelper.findField(clazz, name));
+            task.execute(field);
             return true;
         }
         catch (Exception e)
@@ -48,6 +48,15 @@ public abstract class ServerTranslations
             return fun.apply(key, params);
     }
 
+    /**
+     * The translation, formatted only when its message is first read. For exceptions that are often caught and discarded.
+     */
+    @Nonnull
+    public Translation translation(String key, Object... params)
+    {
+        return new Translation(this, key, params);
+    }
+
     public CommandException commandException(String key, Object... params)
     {
         return object(CommandException::new, key, params);
@@ -105,4 +114,43 @@ public abstract class ServerTranslations
     }
 
     public abstract boolean translateServerSide();
+
+    public static class Translation
+    {
+        protected final ServerTranslations translations;
+        protected final String key;
+        protected final Object[] params;
+
+        protected volatile String message;
+
+        public Translation(ServerTranslations translations, String key, Object... params)
+        {
+            this.translations = translations;
+            this.key = key;
+            this.params = params;
+        }
+
+        public String key()
+        {
+            return key;
+        }
+
+        /**
+         * Like the message passed to {@link ServerTranslations#object(BiFunction, String, Object...)}'s function.
+         */
+        public String message()
+        {
+            String message = this.message;
+            if (message == null)
+                this.message = message = translations.translateServerSide()
+                        ? Translations.format(key, translations.convertParams(params))
+                        : key;
+            return message;
+        }
+
+        public Object[] params()
+        {
+            return translations.translateServerSide() ? new Object[0] : params;
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) 2014, Lukas Tenbrink.
+ *  * http://ivorius.net
+ */
+
+package ivorius.mcopts.translation;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.IllegalFormatException;
+import java.util.List;
+
+/**
+ * Created by lukas on 18.10.26.
+ * <p>
+ * A translated format pattern, parsed once. Patterns with only %s, %1$s and %% are formatted by appending
+ * the arguments; others fall back to {@link String#format(String, Object...)}. Like the language map,
+ * broken patterns format to "Format error: pattern".
+ */
+public class TranslationTemplate
+{
+    protected final String pattern;
+
+    // The text before each argument, and the argument's index
+    protected final String[] literals;
+    protected final int[] args;
+    protected final String tail;
+    protected final boolean simple;
+
+    public TranslationTemplate(String pattern)
+    {
+        this.pattern = pattern;
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> args = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        boolean simple = true;
+
+        int ordinary = 0;
+        for (int i = 0; i < pattern.length(); i++)
+        {
+            char c = pattern.charAt(i);
+            if (c != '%')
+            {
+                literal.append(c);
+                continue;
+            }
+
+            int end = i + 1;
+            while (end < pattern.length() && Character.isDigit(pattern.charAt(end)))
+                end++;
+
+            if (end == i + 1 && end < pattern.length() && pattern.charAt(end) == '%')
+                literal.append('%');
+            else if (end == i + 1 && end < pattern.length() && pattern.charAt(end) == 's')
+                args.add(ordinary++);
+            else if (end > i + 1 && end - i < 10 && end + 1 < pattern.length() && pattern.charAt(end) == '$' && pattern.charAt(end + 1) == 's'
+                    && Integer.parseInt(pattern.substring(i + 1, end)) > 0)
+                args.add(Integer.parseInt(pattern.substring(i + 1, end++)) - 1);
+            else
+            {
+                simple = false;
+                break;
+            }
+
+            if (args.size() > literals.size())
+            {
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            i = end;
+        }
+
+        this.simple = simple;
+        this.literals = literals.toArray(new String[0]);
+        this.args = args.stream().mapToInt(Integer::intValue).toArray();
+        this.tail = literal.toString();
+    }
+
+    public String pattern()
+    {
+        return pattern;
+    }
+
+    @Nonnull
+    public String format(Object... params)
+    {
+        if (!simple)
+            return formatSlow(params);
+
+        if (args.length == 0)
+            return tail;
+
+        StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i] >= params.length || params[args[i]] instanceof Formattable)
+                return formatSlow(params);
+            builder.append(literals[i]).append(params[args[i]]);
+        }
+        return builder.append(tail).toString();
+    }
+
+    protected String formatSlow(Object... params)
+    {
+        try
+        {
+            return String.format(pattern, params);
+        }
+        catch (IllegalFormatException e)
+        {
+            return "Format error: " + pattern;
+        }
+    }
+}
@@ -9,6 +9,8 @@ import net.minecraft.util.text.translation.I18n;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by lukas on 08.06.17.
@@ -16,29 +18,51 @@ import java.util.List;
 @SuppressWarnings("deprecation")
 public class Translations
 {
+    protected static volatile Templates templates = new Templates(-1);
+
     public static boolean has(String key)
     {
         return I18n.canTranslate(key);
     }
 
+    /**
+     * Changes whenever the translations are reloaded, e.g. for another language.
+     */
+    public static long version()
+    {
+        return I18n.getLastTranslationUpdateTimeInMilliseconds();
+    }
+
+    /**
+     * The key's translation in the current language, parsed once until the translations are reloaded.
+     */
+    public static TranslationTemplate template(String key)
+    {
+        Templates templates = Translations.templates;
+        long version = version();
+        if (templates.version != version)
+            Translations.templates = templates = new Templates(version);
+        return templates.templates.computeIfAbsent(key, k -> new TranslationTemplate(I18n.translateToLocal(k)));
+    }
+
     public static String get(String key)
     {
-        return I18n.translateToLocal(key);
+        return template(key).pattern();
     }
 
     public static String format(String key, Object... args)
     {
-        return I18n.translateToLocalFormatted(key, args);
+        return template(key).format(args);
     }
 
     public static List<String> getLines(String key)
     {
-        return splitLines(I18n.translateToLocal(key));
+        return splitLines(get(key));
     }
 
     public static List<String> formatLines(String key, Object... args)
     {
-        return splitLines(I18n.translateToLocalFormatted(key, args));
+        return splitLines(format(key, args));
     }
 
 
@@ -46,4 +70,15 @@ public class Translations
     {
         return Arrays.asList(text.split("<br>"));
     }
-}
\ No newline at end of file
+
+    protected static class Templates
+    {
+        public final long version;
+        public final Map<String, TranslationTemplate> templates = new ConcurrentHashMap<>();
+
+        public Templates(long version)
+        {
+            this.version = version;
+        }
+    }
+}
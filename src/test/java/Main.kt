@@ -1,11 +1,25 @@
 import com.google.common.collect.Sets
+import ivorius.mcopts.commands.CommandBatch
+import ivorius.mcopts.commands.CommandSplit
+import ivorius.mcopts.commands.SimpleCommand
+import ivorius.mcopts.commands.parameters.ArgumentView
+import ivorius.mcopts.commands.parameters.MCP
+import ivorius.mcopts.commands.parameters.NaP
 import ivorius.mcopts.commands.parameters.Parameter
 import ivorius.mcopts.commands.parameters.Parameters
+import ivorius.mcopts.commands.parameters.expect.AsyncCompletions
+import ivorius.mcopts.commands.parameters.expect.CompletionCache
 import ivorius.mcopts.commands.parameters.expect.Expect
+import ivorius.mcopts.commands.parameters.expect.PrefixIndex
+import ivorius.mcopts.translation.TranslationTemplate
+import net.minecraft.command.CommandException
 import net.minecraft.command.ICommandSender
 import net.minecraft.server.MinecraftServer
+import net.minecraft.util.ResourceLocation
 import net.minecraft.util.math.BlockPos
+import org.apache.commons.lang3.tuple.Pair
 import org.mockito.Mockito
+import java.util.stream.Collectors
 
 /**
  * Created by lukas on 15.06.17.
@@ -44,10 +58,162 @@ fun main(args: Array<String>) {
         (if (it.startsWith("\"")) it.substring(1) else it).replace("\\\"", "\"")
     })
 
+    // Frozen
+
+    val frozen = expect(Parameters.expect()).named("split").split { expect(it) }.freeze()
+    testExpect(frozen, transformBase) { it }
+    testExpect(frozen, transformBase) { it }
+    assertThrows({ frozen.named("other") }, IllegalStateException::class.java)
+
+    // Usage
+
+    assertEquals(expect.usage(), frozen.usage())
+    assert(frozen.usage() === frozen.usage())
+
+    testParse()
+
+    // Prefix Index
+
+    val blocks = PrefixIndex(listOf(ResourceLocation("minecraft:stone"), ResourceLocation("minecraft:dirt"), "Stairs"))
+    assertEquals(listOf("minecraft:stone", "minecraft:dirt"), blocks.matching("mine"))
+    assertEquals(listOf("Stairs"), blocks.matching("st"))
+    assertEquals(listOf("minecraft:dirt"), blocks.matching("DI"))
+
+    // Translation Templates
+
+    assertEquals(String.format("%s of %2\$s, 100%%", "a", "b"), TranslationTemplate("%s of %2\$s, 100%%").format("a", "b"))
+    assertEquals("Format error: %s", TranslationTemplate("%s").format())
+
+    // Coordinates
+
+    val coordinates = Parameters().buildLenient(arrayOf("1", "~2", "3.5", "4", "5", "6"))
+    assertEquals(BlockPos(1, 2, 3), coordinates[0].to(MCP.pos(BlockPos(0, 0, 0), false)).require())
+    assertEquals(listOf(1, 2, 3, 4, 5, 6), coordinates[0].to(MCP.positions(BlockPos(0, 0, 0), false)).require().toList())
+
+    // Limit
+
+    val limited = Parameters.expect().any("apple", "banana", "pineapple", "application").limit(2)
+    assertEquals(listOf("apple", "application"), limited.get(mock<MinecraftServer>(), mock<ICommandSender>(), arrayOf("app"), null))
+    assertEquals(listOf("apple", "pineapple"), limited.get(mock<MinecraftServer>(), mock<ICommandSender>(), arrayOf("ple"), null))
+
+    val limitedOr = Parameters.expect().any("pineapple").or().any("apple").limit(1)
+    assertEquals(listOf("apple"), limitedOr.get(mock<MinecraftServer>(), mock<ICommandSender>(), arrayOf("app"), null))
+
+    // Async
+
+    val async = AsyncCompletions(1, 4, 1000)
+    val sender = mock<ICommandSender>()
+    assertEquals(frozen.get(mock<MinecraftServer>(), sender, arrayOf("Ser"), null), async.get(frozen, mock<MinecraftServer>(), sender, arrayOf("Ser"), null).get())
+    async.shutdown()
+
+    // Batch
+
+    var executed = 0
+    var checked = 0
+    val run = object : SimpleCommand("run") {
+        override fun execute(server: MinecraftServer?, sender: ICommandSender?, args: Array<String>) {
+            if (args.isEmpty()) throw CommandException("empty")
+            executed++
+        }
+
+        override fun checkPermission(server: MinecraftServer?, sender: ICommandSender?) = true
+    }
+    val batchSplit = object : CommandSplit("batch", run) {
+        override fun checkPermission(server: MinecraftServer?, sender: ICommandSender?): Boolean {
+            checked++
+            return true
+        }
+    }
+    val batch = CommandBatch(mock<MinecraftServer>(), sender, mapOf("batch" to batchSplit))
+    val results = batch.execute("/batch run a", "batch run", "batch other", "other", "batch run b")
+    assertEquals(2, executed)
+    assertEquals(listOf(true, false, false, false, true), results.map { it.succeeded() })
+    assertEquals(listOf(1, 2, 3), CommandBatch.errors(results).map { it.index })
+    assertEquals(1, checked)
+    batch.execute("batch run c")
+    assertEquals(2, checked)
+
+    // Completion Cache
+
+    val cache = CompletionCache(16)
+    val cached = object : SimpleCommand("cached", { it.any("0", "90").named("p").next(Expect.Completer { _, _, _, _ -> listOf("Alice") }) }) {
+        override fun execute(server: MinecraftServer?, sender: ICommandSender?, args: Array<String>) {
+        }
+    }.cacheCompletions(cache)
+    for (i in 0..1) {
+        assertSet("0", "90", b = cached.getTabCompletions(mock<MinecraftServer>(), sender, arrayOf(""), null))
+        assertEquals(listOf("Alice"), cached.getTabCompletions(mock<MinecraftServer>(), sender, arrayOf("0", "-p", "A"), null))
+    }
+    assertEquals(1L, cache.hits())
+    assertEquals(1, cache.size())
+    assertEquals("A", cached.parameters(arrayOf("0", "-p", "A")).get("p").require())
+
+    val names = arrayListOf("Alice")
+    val live = object : SimpleCommand("live", { it.next(names) }) {
+        override fun execute(server: MinecraftServer?, sender: ICommandSender?, args: Array<String>) {
+        }
+    }.cacheCompletions(cache)
+    assertEquals(listOf("Alice"), live.getTabCompletions(mock<MinecraftServer>(), sender, arrayOf("A"), null))
+    names.add("Anna")
+    assertSet("Alice", "Anna", b = live.getTabCompletions(mock<MinecraftServer>(), sender, arrayOf("A"), null))
+
+    // Combinators, as they behaved before evaluating into results
+
+    val missing = { Parameter.makeUp("n", -1) }
+    assertEquals(false, missing().map { it + "!" }.optional().isPresent)
+    assertEquals("def", missing().map { it + "!" }.orElse("def").require())
+    assertThrows({ Parameter.makeUp("n", 0, "x").filter({ it == "y" }, { CommandException("filt") }).orElse("def").require() }, CommandException::class.java)
+    assertThrows({ Parameter.makeUp("n", 0, "x").map<String>({ null }, { CommandException("bad") }).optional() }, CommandException::class.java)
+    assertEquals("1+2", Parameter.makeUp("n", 0, "1", "2").rest { a, b -> "$a+$b" }.require())
+    assertEquals("23", Parameter.makeUp("n", 0, "1", "2", "3").move(1).rest { a, b -> a + b }.require())
+    assertEquals(listOf("1", "2"), Parameter.makeUp("n", 0, "1", "2").varargsList().require())
+    assertEquals(false, missing().varargsList().optional().isPresent)
+    assertEquals("Serverfoo", Parameter.makeUp("n", 0, "Server").flatMap { s -> Parameter.makeUp("o", 0, "foo").map { s + it } }.require())
+    assertEquals("def", Parameter.makeUp("n", 0, "Server").flatMap { missing() }.orElse("def").require())
+    assertEquals("def", Parameter.makeUp("n", 0, "Server").map { missing().require() }.orElse("def").require())
+    val initial = object : Parameter<String>(0, "n", listOf("a"), null) {
+        override fun initial() = Parameter.Function<List<String>, String> { it[0] + "?" }
+    }
+    assertEquals("a?!", initial.map { it + "!" }.require())
+
+    // Incremental
+
+    val state: (Parameters) -> List<Any?> = {
+        listOf(it.raw(), it.has("flag"), it.get(0).optional(), it.get("name").optional(), it.get("rep").varargsList().optional(), it.lastName())
+    }
+    var typed: Parameters? = null
+    for (line in listOf("Ser", "Server", "Server --na", "Server --name na", "Server --name name1", "Server -f", "Server -f --rep a b", "Server -f --rep a", "Server --name")) {
+        typed = frozen.schema().buildLenient(transformBase(line), typed)
+        assertEquals(state(frozen.schema().buildLenient(transformBase(line))), state(typed!!))
+    }
+
     testParameters({ Parameters.of(transformBase(it), { expect.declare(it) }) });
+    testParameters({ frozen.schema().build(transformBase(it)) });
     testParameters({ Parameters.of(Parameters.of(transformInner(it), { expect.declare(it) })["split"].varargs({ arrayOfNulls<String>(it) }).get(), { expect.declare(it) }) });
 }
 
+fun testParse() {
+    val from: (String) -> List<Pair<String, String>> = { Parameters.parse(it.split(" ").toTypedArray()).collect(Collectors.toList()) }
+
+    assertEquals(listOf(Pair.of("a", "a"), Pair.of("b", "b")), from("a b"))
+    assertEquals(listOf(Pair.of("a", "a"), Pair.of("", "")), from("a "))
+
+    // Quotes
+
+    assertEquals(listOf(Pair.of("\"b c\"", "b c")), from("\"b c\""))
+    assertEquals(listOf(Pair.of("\"b \\\"c\\\"\"", "b \"c\"")), from("\"b \\\"c\\\"\""))
+
+    // Open quote
+
+    assertEquals(listOf(Pair.of("\"b ", "b ")), from("\"b "))
+
+    // Views
+
+    val view = ArgumentView.of(arrayOf("sub", "a", "\"b", "c\""))
+    assertEquals(listOf("a", "\"b", "c\""), view.skip(1))
+    assertEquals(listOf("a", "b c"), Parameters().buildLenient(view.skip(1))[0].varargsList().get())
+}
+
 fun testExpect(expect: Expect, transform: (String) -> Array<String>, completionTransform: (String) -> String) {
     val server = mock<MinecraftServer>()
     val sender = mock<ICommandSender>()
@@ -118,6 +284,25 @@ fun testParameters(transform: (String) -> Parameters) {
     assertEquals(extract(from("Server foo")[0].move(1)), "foo")
     assertEquals(from("Server foo")[0].move(2).has(1), false)
 
+    // Missing
+
+    assertEquals("def", from("Server")[1].orElse("def").require())
+    assertEquals(0, Parameter.ArgumentMissingException.create(from("Server")[1], 0).stackTrace.size)
+
+    // Memoized
+
+    var evaluated = 0
+    val counted = from("Server")[0].map { evaluated++; it }
+    counted.require()
+    counted.optional()
+    assertEquals(1, evaluated)
+
+    // Primitives
+
+    assertEquals(4, NaP.asIntParameter(from("Server 2")[1]).mapInt { it * 2 }.requireInt())
+    assertEquals(3, NaP.asIntParameter(from("Server")[1]).orElseInt(3).requireInt())
+    assertThrows({ NaP.asIntParameter(from("Server 20")[1], 0, 10).requireInt() }, CommandException::class.java)
+
     // Flag
 
     assertEquals(from("--flag").has("flag"), true)